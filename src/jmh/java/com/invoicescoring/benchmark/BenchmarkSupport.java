@@ -0,0 +1,101 @@
+package com.invoicescoring.benchmark;
+
+import com.invoicescoring.config.ScoringProperties;
+import com.invoicescoring.dto.InvoiceSummary;
+import com.invoicescoring.model.Invoice;
+import com.invoicescoring.service.ScoringEngine;
+import com.invoicescoring.service.ServiceMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+// Test data and wiring shared by the benchmarks. Services are built by hand and their @Autowired
+// fields set reflectively, so no Spring context or database is needed.
+final class BenchmarkSupport {
+
+    static final String DEPOT_ID = "bench-depot";
+    static final YearMonth MONTH = YearMonth.of(2024, 5);
+
+    private BenchmarkSupport() {
+    }
+
+    // Invoices spread over one month, 50,000 to 5,000,000 riel each; fixed seed so runs compare
+    static List<Invoice> monthInvoices(int count, YearMonth month) {
+        SplittableRandom random = new SplittableRandom(42);
+        List<Invoice> invoices = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Invoice invoice = new Invoice();
+            invoice.setId(String.format("%024x", i));
+            invoice.setInvoiceNo("INV-" + i);
+            invoice.setDepotId(DEPOT_ID);
+            invoice.setDate(month.atDay(1 + random.nextInt(month.lengthOfMonth())));
+            invoice.setAmount(50_000L + random.nextLong(4_950_000L));
+            invoices.add(invoice);
+        }
+        return invoices;
+    }
+
+    static List<Invoice> quarterInvoices(int count, YearMonth quarterStart) {
+        List<Invoice> invoices = new ArrayList<>(count);
+        for (int m = 0; m < 3; m++) {
+            List<Invoice> month = monthInvoices(count / 3, quarterStart.plusMonths(m));
+            for (Invoice invoice : month) {
+                invoice.setId(invoice.getId().substring(1) + m);
+            }
+            invoices.addAll(month);
+        }
+        return invoices;
+    }
+
+    // Summaries dated across the given year and the one before, as a depot's list would hold
+    static List<InvoiceSummary> yearSummaries(int count, int year) {
+        SplittableRandom random = new SplittableRandom(7);
+        List<InvoiceSummary> summaries = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            LocalDate date = LocalDate.of(year - random.nextInt(2), 1 + random.nextInt(12), 1 + random.nextInt(28));
+            summaries.add(new InvoiceSummary(String.valueOf(i), "INV-" + i, date, "012345678", "Phnom Penh",
+                    50_000L + random.nextLong(4_950_000L), random.nextInt(5), 5.0, 0L));
+        }
+        return summaries;
+    }
+
+    static ScoringEngine scoringEngine() {
+        ScoringEngine engine = new ScoringEngine();
+        inject(engine, "scoringProperties", new ScoringProperties());
+        engine.init();
+        return engine;
+    }
+
+    // Meters go to an in-memory registry, as they would to Prometheus in the application
+    static ServiceMetrics serviceMetrics() {
+        ServiceMetrics metrics = new ServiceMetrics();
+        inject(metrics, "meterRegistry", new SimpleMeterRegistry());
+        metrics.init();
+        return metrics;
+    }
+
+    static void inject(Object target, String fieldName, Object value) {
+        try {
+            Field field = target.getClass().getDeclaredField(fieldName);
+            field.setAccessible(true);
+            field.set(target, value);
+        } catch (ReflectiveOperationException e) {
+            throw new RuntimeException("Cannot set " + fieldName + " on " + target.getClass().getSimpleName(), e);
+        }
+    }
+
+    static Method privateMethod(Class<?> type, String name, Class<?>... parameterTypes) {
+        try {
+            Method method = type.getDeclaredMethod(name, parameterTypes);
+            method.setAccessible(true);
+            return method;
+        } catch (NoSuchMethodException e) {
+            throw new RuntimeException("No method " + name + " on " + type.getSimpleName(), e);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.invoicescoring.benchmark;
+
+import com.invoicescoring.model.Invoice;
+import com.invoicescoring.repository.InvoiceRepository;
+import java.lang.reflect.Proxy;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Stand-in for InvoiceRepository backed by a list, so benchmarks measure the Java side without Mongo.
+// Only the methods the benchmarked code paths call are implemented; anything else throws.
+public class InMemoryInvoiceRepository {
+
+    private final List<Invoice> invoices;
+    private final Map<String, Invoice> byId = new HashMap<>();
+
+    // When false, bulk score updates are dropped, so every rescoring run finds all rows stale
+    private final boolean persistWrites;
+
+    private long rowsWritten;
+
+    public InMemoryInvoiceRepository(List<Invoice> invoices, boolean persistWrites) {
+        this.invoices = invoices;
+        this.persistWrites = persistWrites;
+        for (Invoice invoice : invoices) {
+            byId.put(invoice.getId(), invoice);
+        }
+    }
+
+    public long getRowsWritten() {
+        return rowsWritten;
+    }
+
+    public InvoiceRepository asRepository() {
+        return (InvoiceRepository) Proxy.newProxyInstance(InvoiceRepository.class.getClassLoader(),
+                new Class<?>[] { InvoiceRepository.class }, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "findMonthInvoicesForScoring":
+                            return findMonthInvoicesForScoring((String) args[0], (YearMonth) args[1]);
+                        case "findInvoicesInRange":
+                            return findInvoicesInRange((String) args[0], (LocalDate) args[1], (LocalDate) args[2]);
+                        case "bulkUpdateScores":
+                            @SuppressWarnings("unchecked")
+                            List<Invoice> changed = (List<Invoice>) args[0];
+                            bulkUpdateScores(changed);
+                            return null;
+                        case "toString":
+                            return "InMemoryInvoiceRepository";
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "equals":
+                            return proxy == args[0];
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+
+    // Like the Mongo projection: fresh objects carrying only the scoring fields
+    private List<Invoice> findMonthInvoicesForScoring(String depotId, YearMonth month) {
+        List<Invoice> result = new ArrayList<>();
+        for (Invoice invoice : invoices) {
+            if (invoice.getDepotId().equals(depotId) && YearMonth.from(invoice.getDate()).equals(month)) {
+                Invoice row = new Invoice();
+                row.setId(invoice.getId());
+                row.setAmount(invoice.getAmount());
+                row.setScore(invoice.getScore());
+                row.setDiscount(invoice.getDiscount());
+                row.setTotalAfterDiscount(invoice.getTotalAfterDiscount());
+                result.add(row);
+            }
+        }
+        return result;
+    }
+
+    private List<Invoice> findInvoicesInRange(String depotId, LocalDate from, LocalDate toExclusive) {
+        List<Invoice> result = new ArrayList<>();
+        for (Invoice invoice : invoices) {
+            LocalDate date = invoice.getDate();
+            if (invoice.getDepotId().equals(depotId) && !date.isBefore(from) && date.isBefore(toExclusive)) {
+                result.add(invoice);
+            }
+        }
+        return result;
+    }
+
+    private void bulkUpdateScores(List<Invoice> changed) {
+        rowsWritten += changed.size();
+        if (!persistWrites) {
+            return;
+        }
+        for (Invoice row : changed) {
+            Invoice stored = byId.get(row.getId());
+            stored.setScore(row.getScore());
+            stored.setDiscount(row.getDiscount());
+            stored.setTotalAfterDiscount(row.getTotalAfterDiscount());
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.invoicescoring.benchmark;
+
+import com.invoicescoring.controller.InvoiceController;
+import com.invoicescoring.dto.InvoiceSummary;
+import com.invoicescoring.service.InvoiceService;
+import org.openjdk.jmh.annotations.*;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// InvoiceController's grouped-by-month endpoint against the loop it replaced
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MonthGroupingBenchmark {
+
+    @Param({ "1000", "10000", "100000" })
+    public int invoices;
+
+    private InvoiceController invoiceController;
+    private List<InvoiceSummary> allInvoices;
+    private int currentYear;
+
+    @Setup
+    public void setUp() {
+        currentYear = LocalDate.now().getYear();
+        allInvoices = BenchmarkSupport.yearSummaries(invoices, currentYear);
+
+        // The current endpoint gets only this year's rows from Mongo
+        List<InvoiceSummary> yearInvoices = new ArrayList<>();
+        for (InvoiceSummary invoice : allInvoices) {
+            if (invoice.getDate().getYear() == currentYear) {
+                yearInvoices.add(invoice);
+            }
+        }
+        InvoiceService invoiceService = new InvoiceService() {
+            @Override
+            public List<InvoiceSummary> getInvoicesForYear(String depotId, int year) {
+                return yearInvoices;
+            }
+        };
+
+        invoiceController = new InvoiceController();
+        BenchmarkSupport.inject(invoiceController, "invoiceService", invoiceService);
+    }
+
+    @Benchmark
+    public Map<Integer, List<InvoiceSummary>> groupedByMonth() {
+        return invoiceController.getInvoicesGroupedByMonth(BenchmarkSupport.DEPOT_ID);
+    }
+
+    // Baseline: the original loop, which loaded every invoice of the depot and filtered the year in Java
+    @Benchmark
+    public Map<Integer, List<InvoiceSummary>> legacyGroupedByMonth() {
+        Map<Integer, List<InvoiceSummary>> grouped = new HashMap<>();
+        for (int month = 1; month <= 12; month++) {
+            grouped.put(month, new ArrayList<>());
+        }
+
+        for (InvoiceSummary invoice : allInvoices) {
+            LocalDate invoiceDate = invoice.getDate();
+            if (invoiceDate.getYear() == currentYear) {
+                int month = invoiceDate.getMonthValue();
+                grouped.get(month).add(invoice);
+            }
+        }
+
+        return grouped;
+    }
+}
@@ -0,0 +1,59 @@
+package com.invoicescoring.benchmark;
+
+import com.invoicescoring.service.InvoiceService;
+import com.invoicescoring.service.LiveUpdateService;
+import org.openjdk.jmh.annotations.*;
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+// InvoiceService.recalculateMonthlyScores over one depot-month, repository in memory
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MonthRescoringBenchmark {
+
+    @Param({ "10", "100", "1000", "10000" })
+    public int invoices;
+
+    // true: every run rewrites all rows (the month's tier moved); false: rows already match, nothing written
+    @Param({ "true", "false" })
+    public boolean tierChanged;
+
+    private InvoiceService invoiceService;
+    private Method recalculateMonthlyScores;
+
+    @Setup
+    public void setUp() {
+        InMemoryInvoiceRepository repository = new InMemoryInvoiceRepository(
+                BenchmarkSupport.monthInvoices(invoices, BenchmarkSupport.MONTH), !tierChanged);
+
+        invoiceService = new InvoiceService();
+        BenchmarkSupport.inject(invoiceService, "invoiceRepository", repository.asRepository());
+        BenchmarkSupport.inject(invoiceService, "scoringEngine", BenchmarkSupport.scoringEngine());
+        BenchmarkSupport.inject(invoiceService, "serviceMetrics", BenchmarkSupport.serviceMetrics());
+        // No subscribers, so publishing returns before touching its executor
+        BenchmarkSupport.inject(invoiceService, "liveUpdateService", new LiveUpdateService());
+        recalculateMonthlyScores = BenchmarkSupport.privateMethod(InvoiceService.class,
+                "recalculateMonthlyScores", String.class, int.class, int.class);
+
+        // Bring stored rows up to date so the unchanged case writes nothing
+        rescore();
+    }
+
+    @Benchmark
+    public void rescoreMonth() {
+        rescore();
+    }
+
+    private void rescore() {
+        try {
+            recalculateMonthlyScores.invoke(invoiceService, BenchmarkSupport.DEPOT_ID,
+                    BenchmarkSupport.MONTH.getMonthValue(), BenchmarkSupport.MONTH.getYear());
+        } catch (ReflectiveOperationException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
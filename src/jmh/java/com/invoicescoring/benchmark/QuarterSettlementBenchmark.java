@@ -0,0 +1,44 @@
+package com.invoicescoring.benchmark;
+
+import com.invoicescoring.model.Invoice;
+import com.invoicescoring.repository.InvoiceRepository;
+import com.invoicescoring.service.ScoreCalculationService;
+import com.invoicescoring.service.TierTable;
+import org.openjdk.jmh.annotations.*;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// The in-memory part of ScoreCalculationService.performQuarterCalculation: load the quarter's invoices
+// and run computeSettlement on them (total, score, discount, remainder and carryover). The lease, archive
+// and aggregate writes are Mongo round-trips and belong in the load test instead.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class QuarterSettlementBenchmark {
+
+    private static final YearMonth QUARTER = YearMonth.of(2024, 4);
+
+    @Param({ "300", "3000", "30000" })
+    public int invoices;
+
+    private InvoiceRepository invoiceRepository;
+    private TierTable table;
+
+    @Setup
+    public void setUp() {
+        invoiceRepository = new InMemoryInvoiceRepository(
+                BenchmarkSupport.quarterInvoices(invoices, QUARTER), true).asRepository();
+        table = BenchmarkSupport.scoringEngine().tableFor(BenchmarkSupport.DEPOT_ID);
+    }
+
+    @Benchmark
+    public ScoreCalculationService.Settlement settleQuarter() {
+        List<Invoice> quarterInvoices = invoiceRepository.findInvoicesInRange(BenchmarkSupport.DEPOT_ID,
+                QUARTER.atDay(1), QUARTER.plusMonths(3).atDay(1));
+        return ScoreCalculationService.computeSettlement(table, quarterInvoices);
+    }
+}
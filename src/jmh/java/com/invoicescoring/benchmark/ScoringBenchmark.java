@@ -0,0 +1,73 @@
+package com.invoicescoring.benchmark;
+
+import com.invoicescoring.service.ScoreCalculationService;
+import com.invoicescoring.service.TierTable;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+// Scoring one invoice: score, discount and amount after discount
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ScoringBenchmark {
+
+    private static final int AMOUNTS = 1024;
+
+    private long[] amounts;
+    private TierTable table;
+    private ScoreCalculationService scoreCalculationService;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(1);
+        amounts = new long[AMOUNTS];
+        for (int i = 0; i < AMOUNTS; i++) {
+            amounts[i] = random.nextLong(40_000_000L);
+        }
+        table = BenchmarkSupport.scoringEngine().defaultTable();
+        scoreCalculationService = new ScoreCalculationService();
+        BenchmarkSupport.inject(scoreCalculationService, "scoringEngine", BenchmarkSupport.scoringEngine());
+    }
+
+    private long nextAmount() {
+        next = (next + 1) & (AMOUNTS - 1);
+        return amounts[next];
+    }
+
+    // The primitive engine
+    @Benchmark
+    public void tierTable(Blackhole blackhole) {
+        long amount = nextAmount();
+        int score = table.score(amount);
+        int bps = table.discountBps(score);
+        blackhole.consume(score);
+        blackhole.consume(TierTable.afterDiscount(amount, bps));
+    }
+
+    // The boxed service API, now delegating to the engine
+    @Benchmark
+    public void scoreCalculationService(Blackhole blackhole) {
+        Long amount = nextAmount();
+        Integer score = scoreCalculationService.calculateAccumulatedScore(amount);
+        Double discount = scoreCalculationService.calculateDiscount(score);
+        blackhole.consume(score);
+        blackhole.consume(scoreCalculationService.calculateTotalAfterDiscount(amount, discount));
+    }
+
+    // Baseline: the original hardcoded rules on boxed values and floating point
+    @Benchmark
+    public void legacyBoxed(Blackhole blackhole) {
+        Long amount = nextAmount();
+        Integer score = amount < 1_000_000 ? 0 : Math.toIntExact(amount / 1_000_000);
+        Double discount = score >= 20 ? 10.0 : score >= 10 ? 5.0 : 0.0;
+        Long totalAfterDiscount = Math.round(amount * (1 - discount / 100.0));
+        blackhole.consume(score);
+        blackhole.consume(totalAfterDiscount);
+    }
+}
@@ -0,0 +1,80 @@
+package com.invoicescoring.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+
+// Thin HTTP client for the application's REST API that times every call
+final class ApiClient {
+
+    private final HttpClient http = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+    private final String baseUrl;
+    private final ObjectMapper objectMapper;
+    private final LatencyRecorder recorder;
+
+    ApiClient(String baseUrl, ObjectMapper objectMapper, LatencyRecorder recorder) {
+        this.baseUrl = baseUrl;
+        this.objectMapper = objectMapper;
+        this.recorder = recorder;
+    }
+
+    JsonNode get(String endpoint, String path) {
+        return send(endpoint, HttpRequest.newBuilder(URI.create(baseUrl + path)).GET());
+    }
+
+    JsonNode post(String endpoint, String path, Object body) {
+        return send(endpoint, HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(toJson(body))));
+    }
+
+    JsonNode put(String endpoint, String path, Object body) {
+        return send(endpoint, HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .header("Content-Type", "application/json")
+                .PUT(HttpRequest.BodyPublishers.ofByteArray(toJson(body))));
+    }
+
+    JsonNode delete(String endpoint, String path) {
+        return send(endpoint, HttpRequest.newBuilder(URI.create(baseUrl + path)).DELETE());
+    }
+
+    // Returns the parsed body, or null when the call failed (counted as an error)
+    private JsonNode send(String endpoint, HttpRequest.Builder request) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            HttpResponse<byte[]> response = http.send(request.timeout(Duration.ofSeconds(30)).build(),
+                    HttpResponse.BodyHandlers.ofByteArray());
+            success = response.statusCode() < 400;
+            if (!success || response.body().length == 0) {
+                return null;
+            }
+            return objectMapper.readTree(response.body());
+        } catch (IOException e) {
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } finally {
+            if (recorder != null) {
+                recorder.record(endpoint, System.nanoTime() - start, success);
+            }
+        }
+    }
+
+    private byte[] toJson(Object body) {
+        try {
+            return objectMapper.writeValueAsBytes(body);
+        } catch (IOException e) {
+            throw new RuntimeException("Cannot serialize request body", e);
+        }
+    }
+}
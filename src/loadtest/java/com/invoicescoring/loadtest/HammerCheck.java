@@ -0,0 +1,336 @@
+package com.invoicescoring.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.invoicescoring.dto.InvoiceRequest;
+import com.invoicescoring.model.ArchivedInvoice;
+import com.invoicescoring.model.CalculationRecord;
+import com.invoicescoring.model.Invoice;
+import com.invoicescoring.model.MonthlyAggregate;
+import com.invoicescoring.repository.ArchivedInvoiceRepository;
+import com.invoicescoring.repository.CalculationRecordRepository;
+import com.invoicescoring.repository.InvoiceRepository;
+import com.invoicescoring.repository.MonthlyAggregateRepository;
+import com.invoicescoring.service.QuarterCloseService;
+import com.invoicescoring.service.RescoringQueueService;
+import com.invoicescoring.service.ScoreCalculationService;
+import com.invoicescoring.service.ScoringEngine;
+import com.invoicescoring.service.TierTable;
+import org.springframework.context.ConfigurableApplicationContext;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Many threads writing to the same depot-months at once, then a check that each month is consistent:
+// the aggregate matches its invoices and every invoice carries the month's discount.
+// The writes mix single creates, small batch imports, deletes and updates that move an invoice to the
+// other month. A second run settles a quarter while invoices keep arriving for it.
+final class HammerCheck {
+
+    private static final int BATCH_SIZE = 5;
+
+    private final ConfigurableApplicationContext context;
+    private final ApiClient client;
+
+    HammerCheck(ConfigurableApplicationContext context, ApiClient client) {
+        this.context = context;
+        this.client = client;
+    }
+
+    // Returns the list of violated invariants; empty when both months are consistent
+    List<String> run(String depotId, int threads, int invoices) throws InterruptedException {
+        YearMonth[] months = { YearMonth.now(), YearMonth.now().minusMonths(1) };
+        AtomicInteger nextInvoice = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+
+        for (int t = 0; t < threads; t++) {
+            int seed = t;
+            Thread worker = new Thread(() -> {
+                SplittableRandom random = new SplittableRandom(seed);
+                List<Created> created = new ArrayList<>();
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                int n;
+                while ((n = nextInvoice.getAndIncrement()) < invoices) {
+                    int operation = random.nextInt(10);
+                    if (operation == 0 && !created.isEmpty()) {
+                        // Delete, so the month's total also goes down
+                        client.delete("hammer-del", "/api/invoices/" + created.remove(created.size() - 1).id);
+                    } else if (operation == 1 && !created.isEmpty()) {
+                        // Move an invoice to the other month with a new amount
+                        Created moved = created.get(random.nextInt(created.size()));
+                        YearMonth target = moved.month.equals(months[0]) ? months[1] : months[0];
+                        InvoiceRequest request = request(moved.invoiceNo, depotId, target, "Hammer", random);
+                        if (client.put("hammer-move", "/api/invoices/" + moved.id, request) != null) {
+                            moved.month = target;
+                        }
+                    } else if (operation == 2) {
+                        // Small batch import spread over both months
+                        List<InvoiceRequest> batch = new ArrayList<>();
+                        for (int i = 0; i < BATCH_SIZE; i++) {
+                            batch.add(request("HAMMER-" + n + "-" + i, depotId, months[random.nextInt(2)],
+                                    "Hammer batch", random));
+                        }
+                        JsonNode report = client.post("hammer-batch", "/api/invoices/batch", batch);
+                        if (report != null) {
+                            for (JsonNode row : report.get("rows")) {
+                                if (row.get("success").asBoolean()) {
+                                    InvoiceRequest imported = batch.get(row.get("row").asInt() - 1);
+                                    created.add(new Created(row.get("invoiceId").asText(), imported.getInvoiceNo(),
+                                            YearMonth.from(imported.getDate())));
+                                }
+                            }
+                        }
+                    } else {
+                        YearMonth month = months[random.nextInt(2)];
+                        InvoiceRequest request = request("HAMMER-" + n, depotId, month, "Hammer", random);
+                        JsonNode invoice = client.post("hammer-add", "/api/invoices", request);
+                        if (invoice != null) {
+                            created.add(new Created(invoice.get("id").asText(), request.getInvoiceNo(), month));
+                        }
+                    }
+                }
+            }, "hammer-" + t);
+            worker.start();
+            workers.add(worker);
+        }
+
+        long began = System.nanoTime();
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        System.out.println("Hammer: " + invoices + " writes from " + threads + " threads in "
+                + (System.nanoTime() - began) / 1_000_000 + " ms");
+
+        awaitRescoring();
+        List<String> violations = new ArrayList<>();
+        for (YearMonth month : months) {
+            for (String violation : verify(depotId, month)) {
+                violations.add(month + ": " + violation);
+            }
+        }
+        return violations;
+    }
+
+    // Settle a quarter while threads keep creating invoices in it. Every invoice that was created must
+    // end up either archived with the settlement (and counted in its total) or still live in a month
+    // whose aggregate matches it.
+    List<String> runQuarterRace(String depotId, int threads, int invoices) throws InterruptedException {
+        YearMonth quarter = QuarterCloseService.quarterStartOf(YearMonth.now().minusMonths(6));
+        AtomicInteger created = new AtomicInteger();
+        List<String> violations = new ArrayList<>();
+
+        // Half the invoices are in place before the settlement starts
+        SplittableRandom seedRandom = new SplittableRandom(3);
+        List<InvoiceRequest> seed = new ArrayList<>();
+        for (int i = 0; i < invoices / 2; i++) {
+            seed.add(request("QUARTER-SEED-" + i, depotId, quarter.plusMonths(seedRandom.nextInt(3)),
+                    "Quarter race", seedRandom));
+        }
+        JsonNode report = client.post("quarter-seed", "/api/invoices/batch", seed);
+        if (report != null) {
+            created.addAndGet(report.get("imported").asInt());
+        }
+
+        AtomicInteger nextInvoice = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int seedValue = 1000 + t;
+            Thread worker = new Thread(() -> {
+                SplittableRandom random = new SplittableRandom(seedValue);
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                int n;
+                while ((n = nextInvoice.getAndIncrement()) < invoices - invoices / 2) {
+                    InvoiceRequest request = request("QUARTER-" + n, depotId, quarter.plusMonths(random.nextInt(3)),
+                            "Quarter race", random);
+                    if (client.post("quarter-add", "/api/invoices", request) != null) {
+                        created.incrementAndGet();
+                    }
+                }
+            }, "quarter-race-" + t);
+            worker.start();
+            workers.add(worker);
+        }
+
+        List<String> settleErrors = new ArrayList<>();
+        Thread settler = new Thread(() -> {
+            try {
+                start.await();
+                // Let a quarter of the racing writes start first, so they land on both sides of the settlement
+                while (nextInvoice.get() < (invoices - invoices / 2) / 4) {
+                    Thread.sleep(1);
+                }
+                context.getBean(ScoreCalculationService.class).performQuarterCalculation(depotId, quarter);
+            } catch (Exception e) {
+                settleErrors.add("settlement failed: " + e.getMessage());
+            }
+        }, "quarter-race-settle");
+        settler.start();
+
+        long began = System.nanoTime();
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        settler.join();
+        System.out.println("Quarter race: " + quarter + " settled while " + threads + " threads wrote "
+                + (invoices - invoices / 2) + " invoices in " + (System.nanoTime() - began) / 1_000_000 + " ms");
+        violations.addAll(settleErrors);
+
+        awaitRescoring();
+
+        CalculationRecord record = context.getBean(CalculationRecordRepository.class)
+                .findByDepotIdAndQuarter(depotId, quarter).orElse(null);
+        List<ArchivedInvoice> archived = context.getBean(ArchivedInvoiceRepository.class)
+                .findByDepotIdAndQuarterOrderByDateAsc(depotId, quarter);
+        long archivedTotal = 0;
+        for (ArchivedInvoice invoice : archived) {
+            archivedTotal += invoice.getAmount();
+        }
+
+        if (record == null || !CalculationRecord.COMPLETED.equals(record.getStatus())) {
+            violations.add("quarter " + quarter + " not settled: " + (record != null ? record.getStatus() : "no record"));
+        } else if (record.getTotalAmount() != archivedTotal) {
+            violations.add("settled total " + record.getTotalAmount() + " != archived sum " + archivedTotal);
+        }
+
+        int live = 0;
+        for (int i = 0; i < 3; i++) {
+            YearMonth month = quarter.plusMonths(i);
+            live += context.getBean(InvoiceRepository.class).findMonthInvoicesForScoring(depotId, month).size();
+            for (String violation : verify(depotId, month)) {
+                violations.add(month + " after settlement: " + violation);
+            }
+        }
+        if (archived.size() + live != created.get()) {
+            violations.add(created.get() + " invoices created but " + archived.size() + " archived + " + live
+                    + " live");
+        }
+
+        System.out.println("Quarter race " + quarter + ": " + archived.size() + " archived, " + live
+                + " written after the settlement");
+        return violations;
+    }
+
+    // One batch import into a month that has no aggregate yet. The aggregate is seeded from the stored
+    // invoices while the batch is being written and must still end up equal to the invoice sum.
+    List<String> checkFreshMonthBatch(String depotId, int invoices) throws InterruptedException {
+        YearMonth month = YearMonth.now().minusYears(1);
+        SplittableRandom random = new SplittableRandom(7);
+        List<InvoiceRequest> batch = new ArrayList<>();
+        for (int i = 0; i < invoices; i++) {
+            batch.add(request("FRESH-" + depotId + "-" + i, depotId, month, "Fresh month", random));
+        }
+
+        List<String> violations = new ArrayList<>();
+        JsonNode report = client.post("fresh-batch", "/api/invoices/batch", batch);
+        if (report == null || report.get("imported").asInt() != invoices) {
+            violations.add("fresh-month batch imported " + (report != null ? report.get("imported").asInt() : 0)
+                    + " of " + invoices);
+        }
+
+        awaitRescoring();
+        for (String violation : verify(depotId, month)) {
+            violations.add("fresh-month batch: " + violation);
+        }
+        return violations;
+    }
+
+    private static InvoiceRequest request(String invoiceNo, String depotId, YearMonth month, String address,
+                                          SplittableRandom random) {
+        InvoiceRequest request = new InvoiceRequest();
+        request.setInvoiceNo(invoiceNo);
+        request.setDepotId(depotId);
+        request.setDate(month.atDay(1 + random.nextInt(month.lengthOfMonth())));
+        request.setPhone("012000000");
+        request.setAddress(address);
+        request.setAmount(100_000L + random.nextLong(900_000L));
+        return request;
+    }
+
+    // With write-behind rescoring on, the month settles once the queue drains
+    private void awaitRescoring() throws InterruptedException {
+        RescoringQueueService queue = context.getBean(RescoringQueueService.class);
+        for (int i = 0; i < 300; i++) {
+            Map<String, Object> status = queue.getStatus();
+            if (((Number) status.get("queueDepth")).intValue() == 0
+                    && ((Number) status.get("activeWorkers")).intValue() == 0) {
+                return;
+            }
+            Thread.sleep(100);
+        }
+    }
+
+    private List<String> verify(String depotId, YearMonth month) {
+        List<String> violations = new ArrayList<>();
+        List<Invoice> invoices = context.getBean(InvoiceRepository.class).findMonthInvoicesForScoring(depotId, month);
+        MonthlyAggregate aggregate = context.getBean(MonthlyAggregateRepository.class)
+                .findById(MonthlyAggregate.idFor(depotId, month)).orElse(null);
+
+        long total = 0;
+        for (Invoice invoice : invoices) {
+            total += invoice.getAmount();
+        }
+        TierTable table = context.getBean(ScoringEngine.class).tableFor(depotId);
+        double expectedDiscount = TierTable.percent(table.discountBps(table.score(total)));
+
+        if (aggregate == null) {
+            // A settled month with nothing written since has no aggregate, which is fine
+            if (!invoices.isEmpty()) {
+                violations.add("no monthly aggregate for " + MonthlyAggregate.idFor(depotId, month));
+            }
+            return violations;
+        }
+        if (aggregate.getTotalAmount() != total) {
+            violations.add("aggregate total " + aggregate.getTotalAmount() + " != invoice sum " + total);
+        }
+        if (aggregate.getInvoiceCount() != invoices.size()) {
+            violations.add("aggregate count " + aggregate.getInvoiceCount() + " != invoices " + invoices.size());
+        }
+        if (aggregate.getDiscount() == null || aggregate.getDiscount() != expectedDiscount) {
+            violations.add("aggregate discount " + aggregate.getDiscount() + " != expected " + expectedDiscount);
+        }
+        int wrong = 0;
+        for (Invoice invoice : invoices) {
+            if (invoice.getDiscount() == null || invoice.getDiscount() != expectedDiscount
+                    || invoice.getTotalAfterDiscount() == null
+                    || invoice.getTotalAfterDiscount() != TierTable.afterDiscount(invoice.getAmount(),
+                            table.discountBps(table.score(total)))) {
+                wrong++;
+            }
+        }
+        if (wrong > 0) {
+            violations.add(wrong + " of " + invoices.size() + " invoices not scored at the month's discount");
+        }
+
+        System.out.println("Hammer month " + month + ": " + invoices.size() + " invoices, total " + total
+                + ", discount " + expectedDiscount + "%");
+        return violations;
+    }
+
+    // An invoice a hammer thread created and may later move or delete
+    private static final class Created {
+        private final String id;
+        private final String invoiceNo;
+        private YearMonth month;
+
+        private Created(String id, String invoiceNo, YearMonth month) {
+            this.id = id;
+            this.invoiceNo = invoiceNo;
+            this.month = month;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.invoicescoring.loadtest;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Collects per-endpoint latencies and prints p50/p99 and throughput
+final class LatencyRecorder {
+
+    private final Map<String, Samples> endpoints = new ConcurrentHashMap<>();
+
+    void record(String endpoint, long nanos, boolean success) {
+        endpoints.computeIfAbsent(endpoint, k -> new Samples()).add(nanos, success);
+    }
+
+    // One line over all endpoints: requests, errors, req/s, p50 and p99
+    String summary(double elapsedSeconds) {
+        long requests = 0;
+        int errors = 0;
+        long[] all = new long[0];
+        for (Samples samples : endpoints.values()) {
+            long[] latencies = samples.sorted();
+            requests += latencies.length;
+            errors += samples.errors();
+            int offset = all.length;
+            all = Arrays.copyOf(all, offset + latencies.length);
+            System.arraycopy(latencies, 0, all, offset, latencies.length);
+        }
+        Arrays.sort(all);
+        return String.format("%9d %7d %10.1f %10.2f %10.2f", requests, errors, requests / elapsedSeconds,
+                percentile(all, 0.50), percentile(all, 0.99));
+    }
+
+    void report(String title, double elapsedSeconds) {
+        System.out.println();
+        System.out.println("=== " + title + " (" + String.format("%.1f", elapsedSeconds) + "s) ===");
+        System.out.println(String.format("%-12s %9s %7s %10s %10s %10s %10s",
+                "endpoint", "requests", "errors", "req/s", "p50 ms", "p99 ms", "max ms"));
+
+        long totalRequests = 0;
+        for (Map.Entry<String, Samples> entry : new TreeMap<>(endpoints).entrySet()) {
+            long[] latencies = entry.getValue().sorted();
+            int errors = entry.getValue().errors();
+            totalRequests += latencies.length;
+            System.out.println(String.format("%-12s %9d %7d %10.1f %10.2f %10.2f %10.2f",
+                    entry.getKey(), latencies.length, errors, latencies.length / elapsedSeconds,
+                    percentile(latencies, 0.50), percentile(latencies, 0.99),
+                    latencies.length == 0 ? 0.0 : latencies[latencies.length - 1] / 1_000_000.0));
+        }
+        System.out.println(String.format("%-12s %9d %7s %10.1f", "total", totalRequests, "",
+                totalRequests / elapsedSeconds));
+    }
+
+    private static double percentile(long[] sorted, double quantile) {
+        if (sorted.length == 0) {
+            return 0.0;
+        }
+        int index = (int) Math.ceil(quantile * sorted.length) - 1;
+        return sorted[Math.max(index, 0)] / 1_000_000.0;
+    }
+
+    private static final class Samples {
+        private long[] nanos = new long[1024];
+        private int size;
+        private int errors;
+
+        synchronized void add(long value, boolean success) {
+            if (size == nanos.length) {
+                nanos = Arrays.copyOf(nanos, size * 2);
+            }
+            nanos[size++] = value;
+            if (!success) {
+                errors++;
+            }
+        }
+
+        synchronized long[] sorted() {
+            long[] copy = Arrays.copyOf(nanos, size);
+            Arrays.sort(copy);
+            return copy;
+        }
+
+        synchronized int errors() {
+            return errors;
+        }
+    }
+}
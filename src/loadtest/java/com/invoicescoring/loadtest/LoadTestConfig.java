@@ -0,0 +1,46 @@
+package com.invoicescoring.loadtest;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Load test settings, read from -Dloadtest.* system properties
+final class LoadTestConfig {
+
+    final int depots = intProperty("loadtest.depots", 20);
+    final int invoicesPerDepot = intProperty("loadtest.invoices-per-depot", 500);
+    final int threads = intProperty("loadtest.threads", 16);
+    final int warmupSeconds = intProperty("loadtest.warmup-seconds", 5);
+    final int durationSeconds = intProperty("loadtest.duration-seconds", 30);
+    final int hammerThreads = intProperty("loadtest.hammer-threads", 32);
+    final int hammerInvoices = intProperty("loadtest.hammer-invoices", 2000);
+    final Map<String, Integer> mix = parseMix(System.getProperty("loadtest.mix",
+            "create:20,snapshot:30,stats:10,monthly:20,page:20"));
+    // Threading modes to run one after the other, each on a fresh application and database:
+    // "platform" (Tomcat thread pool) and/or "virtual" (the virtual profile, Java 21)
+    final List<String> modes = List.of(System.getProperty("loadtest.modes", "platform").split("\\s*,\\s*"));
+    // Added to every Mongo command, standing in for a remote or busy database
+    final int mongoLatencyMs = intProperty("loadtest.mongo-latency-ms", 0);
+
+    private static int intProperty(String name, int defaultValue) {
+        return Integer.parseInt(System.getProperty(name, String.valueOf(defaultValue)));
+    }
+
+    // "create:20,snapshot:30" -> operation weights
+    private static Map<String, Integer> parseMix(String value) {
+        Map<String, Integer> mix = new LinkedHashMap<>();
+        for (String part : value.split(",")) {
+            String[] pair = part.trim().split(":");
+            mix.put(pair[0].trim(), Integer.parseInt(pair[1].trim()));
+        }
+        return mix;
+    }
+
+    @Override
+    public String toString() {
+        return "depots=" + depots + ", invoicesPerDepot=" + invoicesPerDepot + ", threads=" + threads
+                + ", warmup=" + warmupSeconds + "s, duration=" + durationSeconds + "s, mix=" + mix
+                + ", hammerThreads=" + hammerThreads + ", hammerInvoices=" + hammerInvoices
+                + ", modes=" + modes + ", mongoLatency=" + mongoLatencyMs + "ms";
+    }
+}
@@ -0,0 +1,269 @@
+package com.invoicescoring.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.invoicescoring.InvoiceScoreSystemApplication;
+import com.invoicescoring.dto.DepotRequest;
+import com.invoicescoring.dto.InvoiceRequest;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import de.bwaldvogel.mongo.MongoServer;
+import de.bwaldvogel.mongo.backend.memory.MemoryBackend;
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import java.net.InetSocketAddress;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Boots the application against an in-process Mongo stand-in, seeds depots and invoices, drives a
+// weighted read/write mix over HTTP and prints latency percentiles and throughput per endpoint.
+// Finishes with a fresh-month batch import, the depot-month hammer and a quarter settlement racing
+// with writes, and exits non-zero if their invariants fail.
+// With -Dloadtest.modes=platform,virtual it repeats everything per threading mode and prints a comparison.
+//
+//   mvn -Ploadtest test-compile exec:exec -Dloadtest.threads=32 -Dloadtest.duration-seconds=60
+public class LoadTestMain {
+
+    public static void main(String[] args) throws Exception {
+        // devtools would restart the application in a new class loader and lose the settings below
+        System.setProperty("spring.devtools.restart.enabled", "false");
+        LoadTestConfig config = new LoadTestConfig();
+        System.out.println("Load test: " + config);
+
+        Map<String, String> summaries = new LinkedHashMap<>();
+        int exitCode = 0;
+        for (String mode : config.modes) {
+            exitCode = Math.max(exitCode, runMode(mode, config, args, summaries));
+        }
+
+        if (summaries.size() > 1) {
+            System.out.println();
+            System.out.println("=== Threading modes, mixed workload, " + config.threads + " threads, "
+                    + config.mongoLatencyMs + " ms Mongo latency ===");
+            System.out.println(String.format("%-12s %9s %7s %10s %10s %10s",
+                    "mode", "requests", "errors", "req/s", "p50 ms", "p99 ms"));
+            summaries.forEach((mode, summary) -> System.out.println(String.format("%-12s ", mode) + summary));
+        }
+        System.exit(exitCode);
+    }
+
+    // Full run (seed, warmup, measured mix, hammer) on a fresh database in one threading mode
+    private static int runMode(String mode, LoadTestConfig config, String[] args, Map<String, String> summaries)
+            throws Exception {
+        MongoServer mongo = new MongoServer(new MemoryBackend());
+        InetSocketAddress address = mongo.bind();
+
+        List<String> properties = new ArrayList<>(List.of(
+                "spring.data.mongodb.uri=mongodb://" + address.getHostString() + ":" + address.getPort()
+                        + "/invoice_loadtest",
+                "server.port=0",
+                "logging.level.root=WARN",
+                "logging.level.com.mongodb=WARN",
+                "logging.level.org.mongodb.driver=WARN",
+                "logging.level.org.springframework.web=WARN",
+                "logging.level.org.springframework.session=WARN",
+                "logging.level.org.springframework.data.mongodb.core=WARN",
+                "logging.level.org.springframework.security=WARN"));
+        if ("virtual".equals(mode)) {
+            if (Runtime.version().feature() < 21) {
+                mongo.shutdownNow();
+                throw new RuntimeException("Mode virtual needs Java 21, running on " + Runtime.version());
+            }
+            properties.add("spring.profiles.active=virtual");
+        } else if (!"platform".equals(mode)) {
+            mongo.shutdownNow();
+            throw new RuntimeException("Unknown load test mode: " + mode);
+        }
+
+        System.out.println();
+        System.out.println("--- Mode: " + mode + " ---");
+        // As command-line arguments so they override application.properties (builder defaults would not)
+        List<String> arguments = new ArrayList<>();
+        for (String property : properties) {
+            arguments.add("--" + property);
+        }
+        arguments.addAll(List.of(args));
+        SpringApplicationBuilder builder = new SpringApplicationBuilder(InvoiceScoreSystemApplication.class);
+        if (config.mongoLatencyMs > 0) {
+            builder.initializers(context -> context.getBeanFactory()
+                    .registerSingleton("loadTestMongoLatency", mongoLatency(config.mongoLatencyMs)));
+        }
+        ConfigurableApplicationContext context;
+        try {
+            context = builder.run(arguments.toArray(new String[0]));
+        } catch (RuntimeException e) {
+            mongo.shutdownNow();
+            throw e;
+        }
+
+        int exitCode = 0;
+        try {
+            String baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+            ObjectMapper objectMapper = context.getBean(ObjectMapper.class);
+
+            List<String> depotIds = seed(new ApiClient(baseUrl, objectMapper, null), config);
+
+            if (config.warmupSeconds > 0) {
+                runMix(new ApiClient(baseUrl, objectMapper, new LatencyRecorder()), depotIds, config,
+                        config.warmupSeconds);
+            }
+            LatencyRecorder recorder = new LatencyRecorder();
+            double elapsed = runMix(new ApiClient(baseUrl, objectMapper, recorder), depotIds, config,
+                    config.durationSeconds);
+            recorder.report("Mixed workload, " + config.threads + " threads, " + mode + " threads", elapsed);
+            summaries.put(mode, recorder.summary(elapsed));
+
+            LatencyRecorder hammerRecorder = new LatencyRecorder();
+            ApiClient hammerClient = new ApiClient(baseUrl, objectMapper, hammerRecorder);
+            String hammerDepot = createDepot(hammerClient, "Hammer depot");
+            long hammerStart = System.nanoTime();
+            HammerCheck hammer = new HammerCheck(context, hammerClient);
+            List<String> violations = new ArrayList<>(hammer.checkFreshMonthBatch(hammerDepot, 500));
+            violations.addAll(hammer.run(hammerDepot, config.hammerThreads, config.hammerInvoices));
+            violations.addAll(hammer.runQuarterRace(hammerDepot, config.hammerThreads, config.hammerInvoices / 2));
+            hammerRecorder.report("Depot-month hammer and quarter race", (System.nanoTime() - hammerStart) / 1e9);
+
+            if (violations.isEmpty()) {
+                System.out.println("Hammer invariants: OK");
+            } else {
+                exitCode = 1;
+                for (String violation : violations) {
+                    System.out.println("Hammer invariant FAILED: " + violation);
+                }
+            }
+        } finally {
+            context.close();
+            mongo.shutdownNow();
+        }
+        return exitCode;
+    }
+
+    // Sleeps before every Mongo command on the thread that issues it, holding its pooled connection,
+    // much like waiting on a slower database would
+    private static MongoClientSettingsBuilderCustomizer mongoLatency(int millis) {
+        return builder -> builder.addCommandListener(new CommandListener() {
+            @Override
+            public void commandStarted(CommandStartedEvent event) {
+                try {
+                    Thread.sleep(millis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+    }
+
+    private static List<String> seed(ApiClient client, LoadTestConfig config) {
+        long start = System.nanoTime();
+        SplittableRandom random = new SplittableRandom(11);
+        int year = LocalDate.now().getYear();
+        List<String> depotIds = new ArrayList<>();
+
+        for (int d = 0; d < config.depots; d++) {
+            String depotId = createDepot(client, "Depot " + d);
+            depotIds.add(depotId);
+
+            // Through the batch import endpoint, 500 rows per request
+            List<InvoiceRequest> batch = new ArrayList<>();
+            for (int i = 0; i < config.invoicesPerDepot; i++) {
+                batch.add(invoice("SEED-" + d + "-" + i, depotId,
+                        LocalDate.of(year, 1 + random.nextInt(LocalDate.now().getMonthValue()), 1 + random.nextInt(28)),
+                        random));
+                if (batch.size() == 500 || i == config.invoicesPerDepot - 1) {
+                    client.post("seed", "/api/invoices/batch", batch);
+                    batch = new ArrayList<>();
+                }
+            }
+        }
+
+        System.out.println("Seeded " + config.depots + " depots x " + config.invoicesPerDepot + " invoices in "
+                + (System.nanoTime() - start) / 1_000_000 + " ms");
+        return depotIds;
+    }
+
+    // Worker threads pick operations by weight until the time is up
+    // Returns the elapsed seconds
+    private static double runMix(ApiClient client, List<String> depotIds, LoadTestConfig config,
+                                 int seconds) throws InterruptedException {
+        List<String> operations = new ArrayList<>();
+        for (Map.Entry<String, Integer> entry : config.mix.entrySet()) {
+            for (int i = 0; i < entry.getValue(); i++) {
+                operations.add(entry.getKey());
+            }
+        }
+
+        AtomicLong invoiceNumbers = new AtomicLong();
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+        long start = System.nanoTime();
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < config.threads; t++) {
+            SplittableRandom random = new SplittableRandom(100 + t);
+            Thread worker = new Thread(() -> {
+                while (System.nanoTime() < deadline) {
+                    String depotId = depotIds.get(random.nextInt(depotIds.size()));
+                    String operation = operations.get(random.nextInt(operations.size()));
+                    runOperation(client, operation, depotId, invoiceNumbers, random);
+                }
+            }, "load-" + t);
+            worker.start();
+            workers.add(worker);
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        return (System.nanoTime() - start) / 1e9;
+    }
+
+    private static void runOperation(ApiClient client, String operation, String depotId,
+                                     AtomicLong invoiceNumbers, SplittableRandom random) {
+        switch (operation) {
+            case "create":
+                client.post(operation, "/api/invoices", invoice("LOAD-" + System.nanoTime() + "-"
+                        + invoiceNumbers.incrementAndGet(), depotId, LocalDate.now(), random));
+                break;
+            case "snapshot":
+                client.get(operation, "/api/dashboard/snapshot");
+                break;
+            case "stats":
+                client.get(operation, "/api/dashboard/stats");
+                break;
+            case "monthly":
+                client.get(operation, "/api/invoices/depot/" + depotId + "/monthly");
+                break;
+            case "page":
+                client.get(operation, "/api/invoices/depot/" + depotId + "/page?limit=50");
+                break;
+            case "depot":
+                client.get(operation, "/api/depots/" + depotId);
+                break;
+            default:
+                throw new RuntimeException("Unknown load test operation: " + operation);
+        }
+    }
+
+    private static String createDepot(ApiClient client, String name) {
+        JsonNode depot = client.post("seed", "/api/depots",
+                new DepotRequest(name, "012345678", "Phnom Penh", "load test", 0));
+        if (depot == null) {
+            throw new RuntimeException("Could not create depot " + name);
+        }
+        return depot.get("id").asText();
+    }
+
+    private static InvoiceRequest invoice(String invoiceNo, String depotId, LocalDate date, SplittableRandom random) {
+        InvoiceRequest request = new InvoiceRequest();
+        request.setInvoiceNo(invoiceNo);
+        request.setDepotId(depotId);
+        request.setDate(date);
+        request.setPhone("012345678");
+        request.setAddress("Phnom Penh");
+        request.setAmount(50_000L + random.nextLong(4_950_000L));
+        return request;
+    }
+}
@@ -0,0 +1,33 @@
+package com.invoicescoring.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import java.util.List;
+
+// Bounded in-memory caches for near-static lookups; each has its own size/TTL spec
+@Configuration
+@EnableCaching
+public class CacheConfig {
+
+    public static final String DEPOT = "depot";
+    public static final String DEPOT_LIST = "depotList";
+    public static final String CARRYOVER = "carryover";
+
+    @Bean
+    public CacheManager cacheManager(@Value("${cache.depot.spec}") String depotSpec,
+                                     @Value("${cache.depot-list.spec}") String depotListSpec,
+                                     @Value("${cache.carryover.spec}") String carryoverSpec) {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+        // Only the caches registered here exist; a typo in a cache name fails instead of growing unbounded
+        cacheManager.setCacheNames(List.of());
+        cacheManager.registerCustomCache(DEPOT, Caffeine.from(depotSpec).build());
+        cacheManager.registerCustomCache(DEPOT_LIST, Caffeine.from(depotListSpec).build());
+        cacheManager.registerCustomCache(CARRYOVER, Caffeine.from(carryoverSpec).build());
+        return cacheManager;
+    }
+}
@@ -1,6 +1,7 @@
 package com.invoicescoring.config;
 
 import com.invoicescoring.service.AdminService;
+import com.invoicescoring.service.GlobalCounterService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.stereotype.Component;
@@ -11,9 +12,15 @@ public class DataInitializer implements CommandLineRunner {
     @Autowired
     private AdminService adminService;
 
+    @Autowired
+    private GlobalCounterService globalCounterService;
+
     @Override
     public void run(String... args) throws Exception {
         // Initialize default admin user on startup
         adminService.initializeDefaultAdmin();
+
+        // Seed the dashboard invoice counters from existing data
+        globalCounterService.initializeCounters();
     }
 }
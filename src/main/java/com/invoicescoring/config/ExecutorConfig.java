@@ -0,0 +1,152 @@
+package com.invoicescoring.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+
+// Bounded worker pools for background work, kept off the request threads.
+// With spring.threads.virtual.enabled (the "virtual" profile, Java 21) each executor starts a virtual
+// thread per task instead, and the pool size becomes a concurrency limit.
+@Configuration
+public class ExecutorConfig {
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    @Bean
+    public AsyncTaskExecutor quarterCloseExecutor(@Value("${quarter-close.parallelism:8}") int parallelism) {
+        if (virtualThreads) {
+            // Limit still applies: every depot close holds Mongo connections and month locks
+            return virtualExecutor("quarter-close-", parallelism, true);
+        }
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(parallelism);
+        executor.setMaxPoolSize(parallelism);
+        executor.setThreadNamePrefix("quarter-close-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.initialize();
+        return executor;
+    }
+
+    // Runs the quarter closes themselves, one at a time; each waits on its depots in quarterCloseExecutor.
+    // A platform thread in both modes: a concurrency limit would make startClose block instead of queue.
+    // On shutdown a running close gets a while to finish; if it doesn't, its run record stays RUNNING
+    // and the next startup resumes it.
+    @Bean
+    public AsyncTaskExecutor quarterCloseCoordinator(
+            @Value("${quarter-close.shutdown-wait-seconds:30}") int shutdownWaitSeconds) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setThreadNamePrefix("quarter-close-coordinator-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(shutdownWaitSeconds);
+        executor.initialize();
+        return executor;
+    }
+
+    // Rebuilds the invoice number filter off the shared @Scheduled thread, which would otherwise stall
+    // the dashboard refresh and rescoring dispatch while the whole collection streams. One rebuild at a
+    // time; a tick that arrives while one is already waiting is dropped.
+    @Bean
+    public AsyncTaskExecutor invoiceNoFilterExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(1);
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.DiscardPolicy());
+        executor.setThreadNamePrefix("invoice-no-filter-");
+        executor.initialize();
+        return executor;
+    }
+
+    // Month rescoring workers for invoice.rescoring.async; the queue in front of them is bounded by
+    // RescoringQueueService
+    @Bean
+    public AsyncTaskExecutor rescoringExecutor(@Value("${invoice.rescoring.parallelism:4}") int parallelism) {
+        if (virtualThreads) {
+            return virtualExecutor("rescoring-", parallelism, true);
+        }
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(parallelism);
+        executor.setMaxPoolSize(parallelism);
+        executor.setThreadNamePrefix("rescoring-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.initialize();
+        return executor;
+    }
+
+    // Parallel lookups of the depot detail page. Bounded queue; when it's full the request thread runs
+    // the lookup itself instead of failing. Lookups count toward the request's Mongo round-trips.
+    @Bean
+    public AsyncTaskExecutor depotDetailExecutor(@Value("${depot-detail.parallelism:16}") int parallelism,
+                                                 @Value("${depot-detail.queue-capacity:500}") int queueCapacity) {
+        if (virtualThreads) {
+            // Over the limit the request's virtual thread waits for a slot, which is cheap
+            SimpleAsyncTaskExecutor executor = virtualExecutor("depot-detail-", parallelism, false);
+            executor.setTaskDecorator(MongoRoundTripCounter::propagate);
+            return executor;
+        }
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(parallelism);
+        executor.setMaxPoolSize(parallelism);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setThreadNamePrefix("depot-detail-");
+        executor.setTaskDecorator(MongoRoundTripCounter::propagate);
+        executor.initialize();
+        return executor;
+    }
+
+    // Writes live update events to SSE subscribers. Each subscriber has at most one drain task queued,
+    // so the queue is bounded by the subscriber limit.
+    @Bean
+    public AsyncTaskExecutor liveUpdateExecutor(@Value("${live-updates.senders:4}") int senders,
+                                                @Value("${live-updates.max-subscribers:1000}") int maxSubscribers) {
+        if (virtualThreads) {
+            // No limit: publishers must never wait, and drains are already one per subscriber
+            return virtualExecutor("live-updates-", SimpleAsyncTaskExecutor.UNBOUNDED_CONCURRENCY, false);
+        }
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(senders);
+        executor.setMaxPoolSize(senders);
+        executor.setQueueCapacity(maxSubscribers);
+        executor.setThreadNamePrefix("live-updates-");
+        executor.initialize();
+        return executor;
+    }
+
+    // Runs StreamingResponseBody writers (invoice streams and exports). Declaring our own executors makes
+    // Boot's applicationTaskExecutor back off, and MVC would then start an unbounded thread per request;
+    // under this name Boot hands it to MVC async support, with spring.mvc.async.request-timeout applied.
+    @Bean(name = { "applicationTaskExecutor", "taskExecutor" })
+    public AsyncTaskExecutor applicationTaskExecutor(@Value("${mvc-async.parallelism:16}") int parallelism,
+                                                     @Value("${mvc-async.queue-capacity:100}") int queueCapacity) {
+        if (virtualThreads) {
+            return virtualExecutor("mvc-async-", parallelism, false);
+        }
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(parallelism);
+        executor.setMaxPoolSize(parallelism);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("mvc-async-");
+        executor.initialize();
+        return executor;
+    }
+
+    // concurrencyLimit makes submitters wait for a free slot once that many tasks are running
+    private static SimpleAsyncTaskExecutor virtualExecutor(String threadNamePrefix, int concurrencyLimit,
+                                                           boolean waitOnShutdown) {
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor(threadNamePrefix);
+        executor.setVirtualThreads(true);
+        executor.setConcurrencyLimit(concurrencyLimit);
+        if (waitOnShutdown) {
+            executor.setTaskTerminationTimeout(30_000);
+        }
+        return executor;
+    }
+}
@@ -0,0 +1,37 @@
+package com.invoicescoring.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.data.convert.ReadingConverter;
+import org.springframework.data.convert.WritingConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import java.time.YearMonth;
+import java.util.List;
+
+// The driver has no codec for YearMonth (quarter fields), so they're stored as "yyyy-MM" strings.
+// That format sorts chronologically, and query values go through the same converter.
+@Configuration
+public class MongoConversionsConfig {
+
+    @Bean
+    public MongoCustomConversions mongoCustomConversions() {
+        return new MongoCustomConversions(List.of(new YearMonthToString(), new StringToYearMonth()));
+    }
+
+    @WritingConverter
+    static class YearMonthToString implements Converter<YearMonth, String> {
+        @Override
+        public String convert(YearMonth source) {
+            return source.toString();
+        }
+    }
+
+    @ReadingConverter
+    static class StringToYearMonth implements Converter<String, YearMonth> {
+        @Override
+        public YearMonth convert(String source) {
+            return YearMonth.parse(source);
+        }
+    }
+}
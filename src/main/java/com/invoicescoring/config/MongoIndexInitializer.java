@@ -0,0 +1,186 @@
+package com.invoicescoring.config;
+
+import com.invoicescoring.model.ArchivedInvoice;
+import com.invoicescoring.model.CalculationRecord;
+import com.invoicescoring.model.Depot;
+import com.invoicescoring.model.Invoice;
+import com.invoicescoring.model.MonthlyAggregate;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.IndexResolver;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+import org.springframework.stereotype.Component;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Creates the indexes declared on the documents (auto-index-creation is off in Spring Boot)
+// and prints which ones are missing or unused
+@Component
+@Order(0)
+public class MongoIndexInitializer implements CommandLineRunner {
+
+    private static final List<Class<?>> INDEXED_DOCUMENTS = List.of(
+            Invoice.class, CalculationRecord.class, MonthlyAggregate.class, ArchivedInvoice.class, Depot.class);
+
+    // Indexes replaced by a wider one; dropped so writes don't keep maintaining them
+    private static final Map<Class<?>, List<String>> RETIRED_INDEXES = Map.of(
+            Invoice.class, List.of("depot_date"),
+            Depot.class, List.of("Depot_TextIndex", "phone"));
+
+    // Indexes the app is not correct without: startup fails if one of them can't be created.
+    // depot_quarter is the quarter calculation lease; without uniqueness two runs can both settle a quarter.
+    private static final Map<Class<?>, List<String>> REQUIRED_INDEXES = Map.of(
+            CalculationRecord.class, List.of("depot_quarter"));
+
+    // Duplicate calculation records are moved here rather than deleted, so they can still be inspected
+    private static final String DUPLICATE_RECORDS_COLLECTION = "calculation_records_duplicates";
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Override
+    public void run(String... args) {
+        IndexResolver resolver = new MongoPersistentEntityIndexResolver(
+                mongoTemplate.getConverter().getMappingContext());
+
+        migrateCalculationRecords();
+
+        for (Class<?> type : INDEXED_DOCUMENTS) {
+            IndexOperations indexOps = mongoTemplate.indexOps(type);
+            String collection = mongoTemplate.getCollectionName(type);
+
+            Set<String> expected = new LinkedHashSet<>();
+            for (IndexDefinition definition : resolver.resolveIndexFor(type)) {
+                String name = definition.getIndexOptions().getString("name");
+                expected.add(name);
+                try {
+                    indexOps.ensureIndex(definition);
+                } catch (Exception e) {
+                    if (REQUIRED_INDEXES.getOrDefault(type, List.of()).contains(name)) {
+                        throw new RuntimeException("Could not create required index " + collection + "." + name, e);
+                    }
+                    // e.g. duplicate invoice numbers already stored block the unique index
+                    System.err.println("[indexes] Could not create " + collection + "." + name + ": " + e.getMessage());
+                }
+            }
+
+            for (String retired : RETIRED_INDEXES.getOrDefault(type, List.of())) {
+                dropRetired(collection, indexOps, retired);
+            }
+
+            report(collection, indexOps, expected);
+        }
+    }
+
+    // Before the lease, depot_quarter was a plain index and a quarter could be settled twice. Keep one
+    // record per {depotId, quarter} (the furthest along, oldest first), move the rest aside, and drop a
+    // non-unique index on those keys so the unique one can be created in its place.
+    private void migrateCalculationRecords() {
+        String collection = mongoTemplate.getCollectionName(CalculationRecord.class);
+        List<Document> groups = new ArrayList<>();
+        mongoTemplate.getCollection(collection).aggregate(List.of(
+                new Document("$sort", new Document("_id", 1)),
+                new Document("$group", new Document("_id",
+                        new Document("depotId", "$depotId").append("quarter", "$quarter"))
+                        .append("records", new Document("$push",
+                                new Document("id", "$_id").append("status", "$status")))
+                        .append("count", new Document("$sum", 1))),
+                new Document("$match", new Document("count", new Document("$gt", 1)))))
+                .into(groups);
+
+        for (Document group : groups) {
+            List<Document> records = group.getList("records", Document.class);
+            Document keep = records.get(0);
+            for (Document record : records) {
+                if (progress(record.getString("status")) > progress(keep.getString("status"))) {
+                    keep = record;
+                }
+            }
+            for (Document record : records) {
+                if (record != keep) {
+                    Document duplicate = mongoTemplate.getCollection(collection)
+                            .find(new Document("_id", record.get("id"))).first();
+                    if (duplicate != null) {
+                        mongoTemplate.getCollection(DUPLICATE_RECORDS_COLLECTION).insertOne(duplicate);
+                        mongoTemplate.getCollection(collection).deleteOne(new Document("_id", record.get("id")));
+                    }
+                }
+            }
+            System.out.println("[indexes] Kept calculation record " + keep.get("id") + " for " + group.get("_id")
+                    + ", moved " + (records.size() - 1) + " duplicates to " + DUPLICATE_RECORDS_COLLECTION);
+        }
+
+        IndexOperations indexOps = mongoTemplate.indexOps(CalculationRecord.class);
+        for (IndexInfo info : indexOps.getIndexInfo()) {
+            boolean sameKeys = info.getIndexFields().size() == 2
+                    && info.isIndexForFields(List.of("depotId", "quarter"));
+            if ((sameKeys || info.getName().equals("depot_quarter")) && !info.isUnique()) {
+                indexOps.dropIndex(info.getName());
+                System.out.println("[indexes] Dropped non-unique index " + collection + "." + info.getName());
+            }
+        }
+    }
+
+    // Records without a status predate the lease and count as completed
+    private static int progress(String status) {
+        if (status == null || CalculationRecord.COMPLETED.equals(status)) {
+            return 2;
+        }
+        return CalculationRecord.SETTLING.equals(status) ? 1 : 0;
+    }
+
+    private void dropRetired(String collection, IndexOperations indexOps, String name) {
+        for (IndexInfo info : indexOps.getIndexInfo()) {
+            if (info.getName().equals(name)) {
+                indexOps.dropIndex(name);
+                System.out.println("[indexes] Dropped retired index " + collection + "." + name);
+                return;
+            }
+        }
+    }
+
+    private void report(String collection, IndexOperations indexOps, Set<String> expected) {
+        Set<String> existing = new LinkedHashSet<>();
+        for (IndexInfo info : indexOps.getIndexInfo()) {
+            existing.add(info.getName());
+        }
+
+        for (String name : expected) {
+            if (!existing.contains(name)) {
+                System.err.println("[indexes] MISSING " + collection + "." + name);
+            }
+        }
+        for (String name : existing) {
+            if (!name.equals("_id_") && !expected.contains(name)) {
+                System.out.println("[indexes] Unmanaged index " + collection + "." + name);
+            }
+        }
+
+        // Access counters reset when mongod restarts, so "unused" means unused since then
+        try {
+            for (Document stats : mongoTemplate.getCollection(collection)
+                    .aggregate(List.of(new Document("$indexStats", new Document())))) {
+                String name = stats.getString("name");
+                Document accesses = stats.get("accesses", Document.class);
+                long ops = accesses != null ? ((Number) accesses.get("ops")).longValue() : 0;
+                if (!name.equals("_id_") && ops == 0) {
+                    System.out.println("[indexes] Unused index " + collection + "." + name);
+                }
+            }
+        } catch (Exception e) {
+            System.out.println("[indexes] $indexStats not available for " + collection + ": " + e.getMessage());
+        }
+
+        System.out.println("[indexes] " + collection + ": " + existing.size() + " indexes, "
+                + expected.size() + " managed");
+    }
+}
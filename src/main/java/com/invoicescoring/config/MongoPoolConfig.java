@@ -0,0 +1,27 @@
+package com.invoicescoring.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import java.util.concurrent.TimeUnit;
+
+// Connection pool sizing for the sync Mongo driver. With platform threads Tomcat's thread pool caps
+// concurrent Mongo calls; with virtual threads nothing does, so the pool becomes the limit and the
+// wait timeout decides how long a request queues for a connection before failing.
+@Configuration
+public class MongoPoolConfig {
+
+    @Bean
+    public MongoClientSettingsBuilderCustomizer mongoPoolSizing(
+            @Value("${mongo.pool.max-size:100}") int maxSize,
+            @Value("${mongo.pool.min-size:0}") int minSize,
+            @Value("${mongo.pool.max-connecting:2}") int maxConnecting,
+            @Value("${mongo.pool.max-wait-ms:120000}") long maxWaitMillis) {
+        return builder -> builder.applyToConnectionPoolSettings(pool -> pool
+                .maxSize(maxSize)
+                .minSize(minSize)
+                .maxConnecting(maxConnecting)
+                .maxWaitTime(maxWaitMillis, TimeUnit.MILLISECONDS));
+    }
+}
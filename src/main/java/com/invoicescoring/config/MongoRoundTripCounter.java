@@ -0,0 +1,63 @@
+package com.invoicescoring.config;
+
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Counts Mongo commands issued on behalf of the current request. The sync driver calls command listeners
+// on the thread that runs the command; the request's counter is bound to the request thread, and
+// propagate() binds it to executor threads doing work for the request (the depot detail fan-out).
+// Commands on threads with no counter bound (background work) aren't counted.
+@Configuration
+public class MongoRoundTripCounter {
+
+    private static final ThreadLocal<AtomicInteger> CURRENT = new ThreadLocal<>();
+
+    // Starts counting for the request on this thread
+    public static AtomicInteger begin() {
+        AtomicInteger count = new AtomicInteger();
+        CURRENT.set(count);
+        return count;
+    }
+
+    public static void end() {
+        CURRENT.remove();
+    }
+
+    // TaskDecorator: runs the task with the submitting thread's counter bound
+    public static Runnable propagate(Runnable task) {
+        AtomicInteger count = CURRENT.get();
+        if (count == null) {
+            return task;
+        }
+        return () -> {
+            AtomicInteger previous = CURRENT.get();
+            CURRENT.set(count);
+            try {
+                task.run();
+            } finally {
+                if (previous != null) {
+                    CURRENT.set(previous);
+                } else {
+                    CURRENT.remove();
+                }
+            }
+        };
+    }
+
+    @Bean
+    public MongoClientSettingsBuilderCustomizer mongoRoundTripListener() {
+        return builder -> builder.addCommandListener(new CommandListener() {
+            @Override
+            public void commandStarted(CommandStartedEvent event) {
+                AtomicInteger count = CURRENT.get();
+                if (count != null) {
+                    count.incrementAndGet();
+                }
+            }
+        });
+    }
+}
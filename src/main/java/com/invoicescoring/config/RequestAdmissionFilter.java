@@ -0,0 +1,50 @@
+package com.invoicescoring.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import java.io.IOException;
+import java.util.concurrent.Semaphore;
+
+// Caps how many API requests run at once. With platform threads Tomcat's worker pool already does this;
+// with virtual threads every request starts straight away, and past the Mongo pool size they time out
+// waiting for a connection. Here the excess waits in line (FIFO) before it touches the session or Mongo.
+// Off (0) unless api.max-concurrent-requests is set, as the "virtual" profile does.
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class RequestAdmissionFilter extends OncePerRequestFilter {
+
+    private final Semaphore permits;
+
+    public RequestAdmissionFilter(@Value("${api.max-concurrent-requests:0}") int maxConcurrentRequests) {
+        this.permits = maxConcurrentRequests > 0 ? new Semaphore(maxConcurrentRequests, true) : null;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return permits == null || !request.getRequestURI().startsWith("/api/");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            return;
+        }
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            permits.release();
+        }
+    }
+}
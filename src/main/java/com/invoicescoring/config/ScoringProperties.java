@@ -0,0 +1,34 @@
+package com.invoicescoring.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Tier tables from application.properties: the default under scoring.*, and per-depot discount
+// programs under scoring.depots.<depotId>.*
+@Component
+@ConfigurationProperties(prefix = "scoring")
+@Data
+public class ScoringProperties {
+    private String version = "default";
+    private long pointUnit = 1_000_000;
+    private List<Tier> tiers = new ArrayList<>();
+    private Map<String, Table> depots = new HashMap<>();
+
+    @Data
+    public static class Tier {
+        private int minScore;
+        private int discountBps;
+    }
+
+    @Data
+    public static class Table {
+        private String version;
+        private Long pointUnit; // defaults to the main table's
+        private List<Tier> tiers = new ArrayList<>();
+    }
+}
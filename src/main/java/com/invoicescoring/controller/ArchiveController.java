@@ -0,0 +1,32 @@
+package com.invoicescoring.controller;
+
+import com.invoicescoring.model.ArchivedInvoice;
+import com.invoicescoring.model.CalculationRecord;
+import com.invoicescoring.service.InvoiceArchiveService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.*;
+import java.time.YearMonth;
+import java.util.List;
+
+// Read-only access to the invoices of settled quarters
+@RestController
+@RequestMapping("/api/archive")
+@CrossOrigin(origins = "*")
+public class ArchiveController {
+
+    @Autowired
+    private InvoiceArchiveService invoiceArchiveService;
+
+    // Settled quarters of a depot, newest first
+    @GetMapping("/depot/{depotId}/quarters")
+    public List<CalculationRecord> getArchivedQuarters(@PathVariable String depotId) {
+        return invoiceArchiveService.getArchivedQuarters(depotId);
+    }
+
+    // Archived invoices of one settled quarter, e.g. quarter=2026-01
+    @GetMapping("/depot/{depotId}")
+    public List<ArchivedInvoice> getArchivedInvoices(@PathVariable String depotId,
+                                                     @RequestParam String quarter) {
+        return invoiceArchiveService.getArchivedInvoices(depotId, YearMonth.parse(quarter));
+    }
+}
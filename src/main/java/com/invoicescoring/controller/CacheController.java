@@ -0,0 +1,38 @@
+package com.invoicescoring.controller;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.web.bind.annotation.*;
+import java.util.HashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/cache")
+@CrossOrigin(origins = "*")
+public class CacheController {
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    // Size, hit/miss and eviction counts of each read cache since startup
+    @GetMapping("/stats")
+    public Map<String, Object> getStats() {
+        Map<String, Object> response = new HashMap<>();
+        for (String name : cacheManager.getCacheNames()) {
+            CaffeineCache cache = (CaffeineCache) cacheManager.getCache(name);
+            CacheStats stats = cache.getNativeCache().stats();
+
+            Map<String, Object> row = new HashMap<>();
+            row.put("size", cache.getNativeCache().estimatedSize());
+            row.put("hits", stats.hitCount());
+            row.put("misses", stats.missCount());
+            row.put("hitRate", stats.hitRate());
+            row.put("evictions", stats.evictionCount());
+            row.put("loadTimeAvgMillis", stats.averageLoadPenalty() / 1_000_000.0);
+            response.put(name, row);
+        }
+        return response;
+    }
+}
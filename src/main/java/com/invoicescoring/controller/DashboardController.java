@@ -1,11 +1,13 @@
 package com.invoicescoring.controller;
 
+import com.invoicescoring.dto.DashboardSnapshot;
 import com.invoicescoring.dto.DashboardStats;
-import com.invoicescoring.repository.InvoiceRepository;
-import com.invoicescoring.service.DepotService;
+import com.invoicescoring.service.DashboardSnapshotService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
-import java.util.List;
 
 @RestController
 @RequestMapping("/api/dashboard")
@@ -13,20 +15,34 @@ import java.util.List;
 public class DashboardController {
 
     @Autowired
-    private DepotService depotService;
-
-    @Autowired
-    private InvoiceRepository invoiceRepository;
+    private DashboardSnapshotService dashboardSnapshotService;
 
     @GetMapping("/stats")
-    public DashboardStats getStats() {
-        long totalDepots = depotService.getDepotCount();
-        long totalInvoices = invoiceRepository.count();
-        Long totalAmount = invoiceRepository.findAll()
-                .stream()
-                .mapToLong(invoice -> invoice.getAmount() != null ? invoice.getAmount() : 0)
-                .sum();
+    public ResponseEntity<DashboardStats> getStats(
+            @RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch) {
+        DashboardSnapshot snapshot = dashboardSnapshotService.getSnapshot();
+        return withEtag(snapshot, snapshot.getStats(), ifNoneMatch);
+    }
+
+    // Stats plus current-month figures per depot
+    @GetMapping("/snapshot")
+    public ResponseEntity<DashboardSnapshot> getSnapshot(
+            @RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch) {
+        DashboardSnapshot snapshot = dashboardSnapshotService.getSnapshot();
+        return withEtag(snapshot, snapshot, ifNoneMatch);
+    }
 
-        return new DashboardStats(totalDepots, totalInvoices, totalAmount);
+    // Unchanged polls get a 304 straight from the in-memory snapshot
+    private <T> ResponseEntity<T> withEtag(DashboardSnapshot snapshot, T body, String ifNoneMatch) {
+        if (snapshot.getEtag().equals(ifNoneMatch)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(snapshot.getEtag())
+                    .cacheControl(CacheControl.noCache())
+                    .build();
+        }
+        return ResponseEntity.ok()
+                .eTag(snapshot.getEtag())
+                .cacheControl(CacheControl.noCache())
+                .body(body);
     }
 }
@@ -1,7 +1,10 @@
 package com.invoicescoring.controller;
 
+import com.invoicescoring.dto.DepotDetail;
+import com.invoicescoring.dto.DepotPage;
 import com.invoicescoring.dto.DepotRequest;
 import com.invoicescoring.model.Depot;
+import com.invoicescoring.service.DepotDetailService;
 import com.invoicescoring.service.DepotService;
 import com.invoicescoring.service.ScoreCalculationService;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -16,12 +19,17 @@ import java.util.Map;
 @CrossOrigin(origins = "*")
 public class DepotController {
 
+    private static final int MAX_PAGE_SIZE = 100;
+
     @Autowired
     private DepotService depotService;
 
     @Autowired
     private ScoreCalculationService scoreCalculationService;
 
+    @Autowired
+    private DepotDetailService depotDetailService;
+
     @PostMapping
     public Depot createDepot(@RequestBody DepotRequest request) {
         return depotService.createDepot(request);
@@ -32,6 +40,19 @@ public class DepotController {
         return depotService.getAllDepots();
     }
 
+    // Paginated, sortable depot listing with server-side prefix search on name, address or phone
+    @GetMapping("/search")
+    public DepotPage searchDepots(
+            @RequestParam(required = false) String q,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(required = false) String sort,
+            @RequestParam(defaultValue = "desc") String direction,
+            @RequestParam(defaultValue = "true") boolean summary) {
+        int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        return depotService.searchDepots(q, Math.max(page, 0), pageSize, sort, direction, summary);
+    }
+
     @GetMapping("/{id}")
     public Depot getDepot(@PathVariable String id) {
         return depotService.getDepotById(id)
@@ -72,6 +93,13 @@ public class DepotController {
         return response;
     }
 
+    // Everything the depot detail page needs in one response
+    @GetMapping("/{id}/detail")
+    public DepotDetail getDepotDetail(@PathVariable String id) {
+        return depotDetailService.getDepotDetail(id)
+                .orElseThrow(() -> new RuntimeException("Depot not found"));
+    }
+
     // NEW: Get remaining score endpoint
     @GetMapping("/{id}/remaining-score")
     public Map<String, Object> getRemainingScore(@PathVariable String id) {
@@ -0,0 +1,35 @@
+package com.invoicescoring.controller;
+
+import com.invoicescoring.service.LiveUpdateService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import java.util.Map;
+
+// Server-Sent Events streams; pages subscribe with EventSource instead of polling
+@RestController
+@RequestMapping("/api/events")
+@CrossOrigin(origins = "*")
+public class EventController {
+
+    @Autowired
+    private LiveUpdateService liveUpdateService;
+
+    // Depot changes and invoice total deltas for the dashboard
+    @GetMapping(value = "/dashboard", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter dashboardEvents() {
+        return liveUpdateService.subscribeDashboard();
+    }
+
+    // Invoice, month total and depot changes of one depot
+    @GetMapping(value = "/depots/{id}", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter depotEvents(@PathVariable String id) {
+        return liveUpdateService.subscribeDepot(id);
+    }
+
+    @GetMapping("/status")
+    public Map<String, Object> getStatus() {
+        return liveUpdateService.getStatus();
+    }
+}
@@ -0,0 +1,76 @@
+package com.invoicescoring.controller;
+
+import com.invoicescoring.service.ExportService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+@RestController
+@RequestMapping("/api/export")
+@CrossOrigin(origins = "*")
+public class ExportController {
+
+    @Autowired
+    private ExportService exportService;
+
+    // Invoices as CSV or NDJSON, optionally filtered by depot and date range (both dates included)
+    @GetMapping("/invoices")
+    public ResponseEntity<StreamingResponseBody> exportInvoices(
+            @RequestParam(required = false) String depotId,
+            @RequestParam(required = false) String from,
+            @RequestParam(required = false) String to,
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestParam(defaultValue = "false") boolean gzip) {
+
+        ExportService.Format exportFormat = parseFormat(format);
+        LocalDate fromDate = from != null ? LocalDate.parse(from) : null;
+        LocalDate toDate = to != null ? LocalDate.parse(to) : null;
+
+        StreamingResponseBody body = outputStream ->
+                exportService.writeInvoices(depotId, fromDate, toDate, exportFormat, gzip, outputStream);
+        return download("invoices", exportFormat, gzip, body);
+    }
+
+    // Quarter calculation history as CSV or NDJSON, for one depot or all
+    @GetMapping("/calculation-records")
+    public ResponseEntity<StreamingResponseBody> exportCalculationRecords(
+            @RequestParam(required = false) String depotId,
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestParam(defaultValue = "false") boolean gzip) {
+
+        ExportService.Format exportFormat = parseFormat(format);
+        StreamingResponseBody body = outputStream ->
+                exportService.writeCalculationRecords(depotId, exportFormat, gzip, outputStream);
+        return download("calculation-records", exportFormat, gzip, body);
+    }
+
+    private ExportService.Format parseFormat(String format) {
+        try {
+            return ExportService.Format.valueOf(format.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new RuntimeException("Unsupported export format: " + format);
+        }
+    }
+
+    private ResponseEntity<StreamingResponseBody> download(String name, ExportService.Format format, boolean gzip,
+            StreamingResponseBody body) {
+        String extension = format == ExportService.Format.CSV ? ".csv" : ".ndjson";
+        MediaType contentType = format == ExportService.Format.CSV
+                ? new MediaType("text", "csv", StandardCharsets.UTF_8)
+                : new MediaType("application", "x-ndjson");
+        if (gzip) {
+            extension += ".gz";
+            contentType = new MediaType("application", "gzip");
+        }
+
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + name + extension + "\"")
+                .contentType(contentType)
+                .body(body);
+    }
+}
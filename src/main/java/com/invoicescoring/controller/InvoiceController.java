@@ -1,17 +1,28 @@
 package com.invoicescoring.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.invoicescoring.dto.ImportReport;
+import com.invoicescoring.dto.InvoicePage;
 import com.invoicescoring.dto.InvoiceRequest;
+import com.invoicescoring.dto.InvoiceSummary;
+import com.invoicescoring.dto.InvoiceTotals;
 import com.invoicescoring.dto.MonthlyStats;
 import com.invoicescoring.model.Invoice;
+import com.invoicescoring.service.InvoiceImportService;
 import com.invoicescoring.service.InvoiceService;
 import com.invoicescoring.service.ScoreCalculationService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import java.io.IOException;
 import java.time.LocalDate;
 import java.time.YearMonth;
 import java.util.*;
+import java.util.stream.Stream;
 
 @RestController
 @RequestMapping("/api/invoices")
@@ -24,16 +35,63 @@ public class InvoiceController {
     @Autowired
     private ScoreCalculationService scoreCalculationService;
 
+    @Autowired
+    private InvoiceImportService invoiceImportService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private static final int MAX_PAGE_SIZE = 500;
+
     @PostMapping
     public Invoice createInvoice(@RequestBody InvoiceRequest request) {
         return invoiceService.createInvoice(request);
     }
 
     @GetMapping("/depot/{depotId}")
-    public List<Invoice> getDepotInvoices(@PathVariable String depotId) {
+    public List<InvoiceSummary> getDepotInvoices(@PathVariable String depotId) {
         return invoiceService.getDepotInvoices(depotId);
     }
 
+    // Bulk import from a JSON array; returns a per-row result report
+    @PostMapping("/batch")
+    public ImportReport importInvoices(@RequestBody List<InvoiceRequest> requests) {
+        return invoiceImportService.importInvoices(requests);
+    }
+
+    // Bulk import from a CSV upload (header: invoiceNo,depotId,date,phone,address,amount)
+    @PostMapping(value = "/batch/csv", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ImportReport importInvoicesCsv(@RequestParam("file") MultipartFile file) throws IOException {
+        return invoiceImportService.importCsv(file);
+    }
+
+    // Keyset-paginated depot invoices, newest first; pass nextCursor back to get the following page
+    @GetMapping("/depot/{depotId}/page")
+    public InvoicePage<InvoiceSummary> getDepotInvoicePage(
+            @PathVariable String depotId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limit) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        return invoiceService.getDepotInvoicePage(depotId, cursor, pageSize);
+    }
+
+    // Whole depot history as a JSON array written while the Mongo cursor is read
+    @GetMapping(value = "/depot/{depotId}/stream", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamDepotInvoices(@PathVariable String depotId) {
+        StreamingResponseBody body = outputStream -> {
+            try (Stream<Invoice> invoices = invoiceService.streamDepotInvoices(depotId);
+                 JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+                generator.writeStartArray();
+                Iterator<Invoice> iterator = invoices.iterator();
+                while (iterator.hasNext()) {
+                    objectMapper.writeValue(generator, iterator.next());
+                }
+                generator.writeEndArray();
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
     @GetMapping("/{id}")
     public Invoice getInvoice(@PathVariable String id) {
         return invoiceService.getInvoiceById(id)
@@ -72,45 +130,18 @@ public class InvoiceController {
 
     @GetMapping("/depot/{depotId}/monthly")
     public List<MonthlyStats> getMonthlyStats(@PathVariable String depotId) {
-        List<Invoice> allInvoices = invoiceService.getDepotInvoices(depotId);
-
-        Map<Integer, MonthlyStats> monthlyMap = new HashMap<>();
-        for (int month = 1; month <= 12; month++) {
-            monthlyMap.put(month, new MonthlyStats(month, 0L, 0L, 0));
-        }
-
-        for (Invoice invoice : allInvoices) {
-            int month = invoice.getDate().getMonthValue();
-            MonthlyStats stats = monthlyMap.get(month);
-            stats.setTotalAmount(stats.getTotalAmount() + invoice.getAmount());
-            stats.setInvoiceCount(stats.getInvoiceCount() + 1);
-            stats.setTotalScore(stats.getTotalScore() + invoice.getScore());
-        }
-
-        return new ArrayList<>(monthlyMap.values());
+        return invoiceService.getMonthlyStats(depotId);
     }
 
     @GetMapping("/depot/{depotId}/year-stats")
     public Map<String, Object> getYearStats(@PathVariable String depotId) {
-        List<Invoice> allInvoices = invoiceService.getDepotInvoices(depotId);
-
         int currentYear = LocalDate.now().getYear();
-        long totalYearAmount = 0;
-        int totalYearScore = 0;
-        int totalInvoices = 0;
-
-        for (Invoice invoice : allInvoices) {
-            if (invoice.getDate().getYear() == currentYear) {
-                totalYearAmount += invoice.getAmount();
-                totalYearScore += invoice.getScore();
-                totalInvoices++;
-            }
-        }
+        InvoiceTotals totals = invoiceService.getYearTotals(depotId, currentYear);
 
         Map<String, Object> stats = new HashMap<>();
-        stats.put("totalYearAmount", totalYearAmount);
-        stats.put("totalYearScore", totalYearScore);
-        stats.put("totalInvoices", totalInvoices);
+        stats.put("totalYearAmount", totals.getTotalAmount());
+        stats.put("totalYearScore", totals.getTotalScore());
+        stats.put("totalInvoices", totals.getInvoiceCount());
         stats.put("year", currentYear);
 
         return stats;
@@ -118,38 +149,27 @@ public class InvoiceController {
 
     // Get invoices for specific month and year
     @GetMapping("/depot/{depotId}/month/{month}")
-    public List<Invoice> getMonthInvoices(@PathVariable String depotId, @PathVariable int month) {
-        List<Invoice> allInvoices = invoiceService.getDepotInvoices(depotId);
-        int currentYear = LocalDate.now().getYear();
-
-        List<Invoice> monthInvoices = new ArrayList<>();
-        for (Invoice invoice : allInvoices) {
-            LocalDate invoiceDate = invoice.getDate();
-            if (invoiceDate.getMonthValue() == month && invoiceDate.getYear() == currentYear) {
-                monthInvoices.add(invoice);
-            }
-        }
-
-        return monthInvoices;
+    public List<InvoiceSummary> getMonthInvoices(@PathVariable String depotId, @PathVariable int month) {
+        return invoiceService.getInvoicesForMonth(depotId, month, LocalDate.now().getYear());
     }
 
     // Get invoice count for specific month
     @GetMapping("/depot/{depotId}/month/{month}/count")
     public Map<String, Object> getMonthInvoiceCount(@PathVariable String depotId, @PathVariable int month) {
-        List<Invoice> monthInvoices = getMonthInvoices(depotId, month);
+        int currentYear = LocalDate.now().getYear();
 
         Map<String, Object> response = new HashMap<>();
         response.put("depotId", depotId);
         response.put("month", month);
-        response.put("count", monthInvoices.size());
-        response.put("year", LocalDate.now().getYear());
+        response.put("count", invoiceService.getMonthInvoiceCount(depotId, month, currentYear));
+        response.put("year", currentYear);
 
         return response;
     }
 
     // Get invoices by date range
     @GetMapping("/depot/{depotId}/date-range")
-    public List<Invoice> getInvoicesByDateRange(
+    public List<InvoiceSummary> getInvoicesByDateRange(
             @PathVariable String depotId,
             @RequestParam String startDate,
             @RequestParam String endDate) {
@@ -181,12 +201,12 @@ public class InvoiceController {
             endDate = LocalDate.of(currentYear, 12, 31);
         }
 
-        List<Invoice> quarterInvoices = invoiceService.getDepotInvoicesByDateRange(depotId, startDate, endDate);
+        List<InvoiceSummary> quarterInvoices = invoiceService.getDepotInvoicesByDateRange(depotId, startDate, endDate);
 
         long totalAmount = 0;
         int totalScore = 0;
 
-        for (Invoice invoice : quarterInvoices) {
+        for (InvoiceSummary invoice : quarterInvoices) {
             totalAmount += invoice.getAmount();
             totalScore += invoice.getScore();
         }
@@ -271,11 +291,13 @@ public class InvoiceController {
         }
 
         try {
-            scoreCalculationService.performQuarterCalculation(depotId, quarter);
+            boolean calculated = scoreCalculationService.performQuarterCalculation(depotId, quarter);
 
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
-            response.put("message", "Quarter calculation completed successfully");
+            response.put("message", calculated
+                    ? "Quarter calculation completed successfully"
+                    : "Quarter was already calculated");
             response.put("quarter", quarter.toString());
             response.put("depotId", depotId);
 
@@ -302,21 +324,16 @@ public class InvoiceController {
 
     // Get all invoices grouped by month for current year
     @GetMapping("/depot/{depotId}/grouped-by-month")
-    public Map<Integer, List<Invoice>> getInvoicesGroupedByMonth(@PathVariable String depotId) {
-        List<Invoice> allInvoices = invoiceService.getDepotInvoices(depotId);
-        int currentYear = LocalDate.now().getYear();
+    public Map<Integer, List<InvoiceSummary>> getInvoicesGroupedByMonth(@PathVariable String depotId) {
+        List<InvoiceSummary> yearInvoices = invoiceService.getInvoicesForYear(depotId, LocalDate.now().getYear());
 
-        Map<Integer, List<Invoice>> grouped = new HashMap<>();
+        Map<Integer, List<InvoiceSummary>> grouped = new HashMap<>();
         for (int month = 1; month <= 12; month++) {
             grouped.put(month, new ArrayList<>());
         }
 
-        for (Invoice invoice : allInvoices) {
-            LocalDate invoiceDate = invoice.getDate();
-            if (invoiceDate.getYear() == currentYear) {
-                int month = invoiceDate.getMonthValue();
-                grouped.get(month).add(invoice);
-            }
+        for (InvoiceSummary invoice : yearInvoices) {
+            grouped.get(invoice.getDate().getMonthValue()).add(invoice);
         }
 
         return grouped;
@@ -0,0 +1,35 @@
+package com.invoicescoring.controller;
+
+import com.invoicescoring.model.QuarterCloseRun;
+import com.invoicescoring.service.QuarterCloseService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.*;
+import java.time.YearMonth;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/quarter-close")
+@CrossOrigin(origins = "*")
+public class QuarterCloseController {
+
+    @Autowired
+    private QuarterCloseService quarterCloseService;
+
+    // Start (or resume) closing a quarter for all depots, e.g. quarter=2026-07
+    @PostMapping("/run")
+    public QuarterCloseRun startClose(@RequestParam String quarter) {
+        return quarterCloseService.startClose(YearMonth.parse(quarter));
+    }
+
+    // Progress of one quarter's close
+    @GetMapping("/status")
+    public QuarterCloseRun getStatus(@RequestParam String quarter) {
+        return quarterCloseService.getRun(YearMonth.parse(quarter))
+                .orElseThrow(() -> new RuntimeException("No quarter close run for " + quarter));
+    }
+
+    @GetMapping("/runs")
+    public List<QuarterCloseRun> getRuns() {
+        return quarterCloseService.getRuns();
+    }
+}
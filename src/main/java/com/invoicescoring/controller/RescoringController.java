@@ -0,0 +1,21 @@
+package com.invoicescoring.controller;
+
+import com.invoicescoring.service.RescoringQueueService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.*;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/rescoring")
+@CrossOrigin(origins = "*")
+public class RescoringController {
+
+    @Autowired
+    private RescoringQueueService rescoringQueueService;
+
+    // Queue depth, worker usage and requested vs computed version per depot-month
+    @GetMapping("/status")
+    public Map<String, Object> getStatus() {
+        return rescoringQueueService.getStatus();
+    }
+}
@@ -0,0 +1,19 @@
+package com.invoicescoring.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class DashboardSnapshot {
+    private DashboardStats stats;
+    private List<DepotSummary> depots;
+    private LocalDateTime generatedAt;
+    @JsonIgnore
+    private String etag; // hash of stats and depots; a rebuild with the same content keeps it
+    @JsonIgnore
+    private long builtAtMillis;
+}
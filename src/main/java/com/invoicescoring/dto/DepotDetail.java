@@ -0,0 +1,24 @@
+package com.invoicescoring.dto;
+
+import com.invoicescoring.model.Depot;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.util.List;
+
+// Everything the depot detail page renders, loaded in one request
+@Data
+@NoArgsConstructor
+public class DepotDetail {
+    private Depot depot;
+    private int remainingScore;
+    private int carryoverScore;
+    private String currentQuarter;
+    private String previousQuarter;
+    private int year;
+    private List<MonthlyStats> months; // 12 entries for the current year
+    private List<Integer> calculatedMonths; // calculation months (1, 4, 7, 10) whose quarter is settled
+    private int currentMonth;
+    private List<InvoiceSummary> currentMonthInvoices;
+    private long currentMonthInvoiceCount;
+    private InvoiceTotals quarterTotals; // current quarter so far
+}
@@ -0,0 +1,13 @@
+package com.invoicescoring.dto;
+
+import com.invoicescoring.model.Depot;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+// One row of the depot listing; summary is null unless the caller asked for it
+@Data
+@AllArgsConstructor
+public class DepotListItem {
+    private Depot depot;
+    private DepotSummary summary;
+}
@@ -0,0 +1,16 @@
+package com.invoicescoring.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import java.util.List;
+
+// Offset page of the depot listing (pages are numbered from 0)
+@Data
+@AllArgsConstructor
+public class DepotPage {
+    private List<DepotListItem> items;
+    private int page;
+    private int size;
+    private long totalItems;
+    private int totalPages;
+}
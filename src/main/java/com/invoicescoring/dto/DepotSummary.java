@@ -0,0 +1,19 @@
+package com.invoicescoring.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Top-line figures of one depot for the current month
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DepotSummary {
+    private String depotId;
+    private String name;
+    private int remainingScore;
+    private long monthTotalAmount;
+    private long monthInvoiceCount;
+    private int monthScore;
+    private double monthDiscount;
+}
@@ -0,0 +1,16 @@
+package com.invoicescoring.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImportReport {
+    private int total;
+    private int imported;
+    private int failed;
+    private List<ImportRowResult> rows;
+}
@@ -0,0 +1,16 @@
+package com.invoicescoring.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImportRowResult {
+    private int row; // 1-based position in the submitted batch
+    private String invoiceNo;
+    private boolean success;
+    private String message;
+    private String invoiceId;
+}
@@ -0,0 +1,13 @@
+package com.invoicescoring.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class InvoicePage<T> {
+    private List<T> items;
+    private String nextCursor; // null on the last page
+    private boolean hasMore;
+}
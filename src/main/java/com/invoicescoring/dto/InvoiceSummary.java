@@ -0,0 +1,25 @@
+package com.invoicescoring.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDate;
+
+// Columns the invoice list views render; read from Mongo as a projection
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class InvoiceSummary {
+    public static final String[] FIELDS = {
+            "invoiceNo", "date", "phone", "address", "amount", "score", "discount", "totalAfterDiscount" };
+
+    private String id;
+    private String invoiceNo;
+    private LocalDate date;
+    private String phone;
+    private String address;
+    private Long amount;
+    private Integer score;
+    private Double discount;
+    private Long totalAfterDiscount;
+}
@@ -0,0 +1,14 @@
+package com.invoicescoring.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class InvoiceTotals {
+    private long totalAmount;
+    private long invoiceCount;
+    private int totalScore;
+}
@@ -0,0 +1,51 @@
+package com.invoicescoring.model;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+
+// An invoice of a settled quarter, moved out of the live invoices collection and kept for audits.
+// Keeps the invoice id so a repeated archive run can't copy it twice.
+@Document(collection = "invoices_archive")
+@CompoundIndex(name = "depot_quarter_date", def = "{'depotId': 1, 'quarter': 1, 'date': 1}")
+@Data
+@NoArgsConstructor
+public class ArchivedInvoice {
+    @Id
+    private String id;
+    private String invoiceNo;
+    private String depotId;
+    private YearMonth quarter; // first month of the settled quarter
+    private LocalDate date;
+    private String phone;
+    private String address;
+    private Long amount;
+    private Integer score;
+    private Double discount;
+    private Long totalAfterDiscount;
+    private LocalDateTime createdDate;
+    private LocalDateTime archivedDate;
+
+    public static ArchivedInvoice from(Invoice invoice, YearMonth quarter, LocalDateTime archivedDate) {
+        ArchivedInvoice archived = new ArchivedInvoice();
+        archived.setId(invoice.getId());
+        archived.setInvoiceNo(invoice.getInvoiceNo());
+        archived.setDepotId(invoice.getDepotId());
+        archived.setQuarter(quarter);
+        archived.setDate(invoice.getDate());
+        archived.setPhone(invoice.getPhone());
+        archived.setAddress(invoice.getAddress());
+        archived.setAmount(invoice.getAmount());
+        archived.setScore(invoice.getScore());
+        archived.setDiscount(invoice.getDiscount());
+        archived.setTotalAfterDiscount(invoice.getTotalAfterDiscount());
+        archived.setCreatedDate(invoice.getCreatedDate());
+        archived.setArchivedDate(archivedDate);
+        return archived;
+    }
+}
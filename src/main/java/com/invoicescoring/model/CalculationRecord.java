@@ -2,22 +2,37 @@ package com.invoicescoring.model;
 
 import lombok.Data;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.mapping.Document;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.time.YearMonth;
 
 @Document(collection = "calculation_records")
+@CompoundIndex(name = "depot_quarter", def = "{'depotId': 1, 'quarter': 1}", unique = true)
 @Data
 public class CalculationRecord {
+    // Lifecycle: IN_PROGRESS (lease taken) -> SETTLING (results saved) -> COMPLETED (invoices removed).
+    // Records written before leases existed have no status and count as COMPLETED.
+    public static final String IN_PROGRESS = "IN_PROGRESS";
+    public static final String SETTLING = "SETTLING";
+    public static final String COMPLETED = "COMPLETED";
+
     @Id
     private String id;
     private String depotId;
     private YearMonth quarter;
     private long totalAmount;
+    private int invoiceCount; // invoices settled; with totalAmount, what leaves the global counters
     private int totalScore;
     private double discount;
     private long totalAfterDiscount;
     private int remainderScore;
     private int carryoverScore;
     private LocalDate calculatedDate;
+    private String tierVersion; // tier table the quarter was scored with
+    private String status;
+    private boolean countersApplied; // totals already taken out of the global counters
+    private String leaseOwner;
+    private LocalDateTime leaseExpiresAt;
 }
\ No newline at end of file
@@ -4,8 +4,10 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 import java.time.LocalDateTime;
+import java.util.Locale;
 
 @Document(collection = "depots")
 @Data
@@ -14,11 +16,33 @@ import java.time.LocalDateTime;
 public class Depot {
     @Id
     private String id;
+    @Indexed
     private String name;
-    private String phone;
+    @Indexed // name lower-cased with spaces collapsed; searches are anchored prefix regexes on it
+    private String nameKey;
+    private String phone; // as entered
+    @Indexed // phone reduced to digits (and a leading +), so anchored prefix searches on it can match
+    private String phoneKey;
     private String address;
+    @Indexed // address lower-cased with spaces collapsed, prefix-searched like nameKey
+    private String addressKey;
     private String additionalInfo;
     private Integer remainingScore = 0; // NEW: Added remaining score field
+    @Indexed
     private LocalDateTime createdDate = LocalDateTime.now();
     private LocalDateTime updatedDate = LocalDateTime.now();
+
+    // Search keys are "" rather than null for a missing value, so the backfill can tell them apart
+    // from depots that have no keys yet
+    public static String nameKeyOf(String name) {
+        return name != null ? name.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT) : "";
+    }
+
+    public static String addressKeyOf(String address) {
+        return nameKeyOf(address);
+    }
+
+    public static String phoneKeyOf(String phone) {
+        return phone != null ? phone.replaceAll("[^0-9+]", "") : "";
+    }
 }
\ No newline at end of file
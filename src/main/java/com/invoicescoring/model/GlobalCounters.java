@@ -0,0 +1,21 @@
+package com.invoicescoring.model;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import java.time.LocalDateTime;
+
+// System-wide invoice totals, kept up to date on every invoice write
+@Document(collection = "global_counters")
+@Data
+@NoArgsConstructor
+public class GlobalCounters {
+    public static final String INVOICES_ID = "invoices";
+
+    @Id
+    private String id;
+    private long totalInvoices;
+    private long totalAmount;
+    private LocalDateTime updatedDate = LocalDateTime.now();
+}
@@ -4,17 +4,22 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 
 @Document(collection = "invoices")
+// _id as the last key matches depotPageSort, so depot listings and streams read in index order
+@CompoundIndex(name = "depot_date_id", def = "{'depotId': 1, 'date': -1, '_id': -1}")
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class Invoice {
     @Id
     private String id;
+    @Indexed(unique = true)
     private String invoiceNo;
     private String depotId;
     private String depotName;
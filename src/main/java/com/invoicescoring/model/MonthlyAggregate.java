@@ -0,0 +1,36 @@
+package com.invoicescoring.model;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+
+// Running totals for one depot in one calendar month, maintained on every invoice write
+@Document(collection = "monthly_aggregates")
+@CompoundIndex(name = "year_month", def = "{'year': 1, 'month': 1}")
+@Data
+@NoArgsConstructor
+public class MonthlyAggregate {
+    @Id
+    private String id; // depotId:yyyy-MM
+    private String depotId;
+    private int year;
+    private int month;
+    private long totalAmount;
+    private long invoiceCount;
+    private Integer score; // null until the month has been scored
+    private Double discount; // null until the month has been scored
+    private boolean rescorePending; // a write-behind rescoring of the month hasn't finished yet
+    private LocalDateTime updatedDate = LocalDateTime.now();
+
+    public static String idFor(String depotId, YearMonth month) {
+        return depotId + ":" + month;
+    }
+
+    public YearMonth getYearMonth() {
+        return YearMonth.of(year, month);
+    }
+}
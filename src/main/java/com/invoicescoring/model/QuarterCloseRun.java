@@ -0,0 +1,32 @@
+package com.invoicescoring.model;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+// Progress of closing one quarter across all depots; a depot's CalculationRecord is its checkpoint
+@Document(collection = "quarter_close_runs")
+@Data
+@NoArgsConstructor
+public class QuarterCloseRun {
+    public static final String RUNNING = "RUNNING";
+    public static final String COMPLETED = "COMPLETED";
+    public static final String COMPLETED_WITH_ERRORS = "COMPLETED_WITH_ERRORS";
+
+    @Id
+    private String id; // the quarter start, e.g. 2026-07
+    private String quarter;
+    private String status;
+    private int totalDepots;
+    private int closedDepots; // settled by this run
+    private int skippedDepots; // already settled before this run (checkpoint)
+    private int failedDepots;
+    private List<String> failedDepotIds = new ArrayList<>();
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,11 @@
+package com.invoicescoring.repository;
+
+import com.invoicescoring.model.ArchivedInvoice;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import java.time.YearMonth;
+import java.util.List;
+
+public interface ArchivedInvoiceRepository extends MongoRepository<ArchivedInvoice, String> {
+    List<ArchivedInvoice> findByDepotIdAndQuarterOrderByDateAsc(String depotId, YearMonth quarter);
+    long countByDepotIdAndQuarter(String depotId, YearMonth quarter);
+}
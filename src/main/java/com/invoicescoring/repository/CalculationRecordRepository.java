@@ -4,7 +4,10 @@ import com.invoicescoring.model.CalculationRecord;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import java.time.YearMonth;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface CalculationRecordRepository extends MongoRepository<CalculationRecord, String> {
     Optional<CalculationRecord> findByDepotIdAndQuarter(String depotId, YearMonth quarter);
+    Stream<CalculationRecord> streamByDepotId(String depotId);
+    Stream<CalculationRecord> streamAllBy();
 }
\ No newline at end of file
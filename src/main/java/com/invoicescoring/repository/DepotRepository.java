@@ -6,6 +6,9 @@ import org.springframework.stereotype.Repository;
 import java.util.List;
 
 @Repository
-public interface DepotRepository extends MongoRepository<Depot, String> {
+public interface DepotRepository extends MongoRepository<Depot, String>, DepotRepositoryCustom {
     List<Depot> findAllByOrderByCreatedDateDesc();
+
+    // Also matches documents without the fields
+    List<Depot> findByNameKeyIsNullOrPhoneKeyIsNullOrAddressKeyIsNull();
 }
@@ -0,0 +1,15 @@
+package com.invoicescoring.repository;
+
+import com.invoicescoring.model.Depot;
+import org.springframework.data.domain.Pageable;
+import java.util.List;
+
+// Depot search: digits match a phone prefix, anything else a name or address prefix (case and spacing ignored)
+public interface DepotRepositoryCustom {
+
+    // One page of matching depots in the pageable's sort; a null or blank search lists all depots
+    List<Depot> searchDepots(String search, Pageable pageable);
+
+    // Number of depots matching the same search
+    long countDepots(String search);
+}
@@ -0,0 +1,46 @@
+package com.invoicescoring.repository;
+
+import com.invoicescoring.model.Depot;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import java.util.List;
+import java.util.regex.Pattern;
+
+public class DepotRepositoryCustomImpl implements DepotRepositoryCustom {
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Override
+    public List<Depot> searchDepots(String search, Pageable pageable) {
+        return mongoTemplate.find(searchQuery(search).with(pageable), Depot.class);
+    }
+
+    @Override
+    public long countDepots(String search) {
+        return mongoTemplate.count(searchQuery(search), Depot.class);
+    }
+
+    private Query searchQuery(String search) {
+        if (search == null || search.isBlank()) {
+            return new Query();
+        }
+
+        // The keys are stored normalized, so an anchored literal prefix stays on their indexes;
+        // each branch of the $or uses its own index
+        String trimmed = search.trim();
+        String prefix = "^" + Pattern.quote(Depot.nameKeyOf(trimmed));
+        if (trimmed.matches("[0-9+()\\s-]+")) {
+            // Digits are a phone number, or the house number an address starts with
+            return Query.query(new Criteria().orOperator(
+                    Criteria.where("phoneKey").regex("^" + Pattern.quote(Depot.phoneKeyOf(trimmed))),
+                    Criteria.where("addressKey").regex(prefix)));
+        }
+        return Query.query(new Criteria().orOperator(
+                Criteria.where("nameKey").regex(prefix),
+                Criteria.where("addressKey").regex(prefix)));
+    }
+}
@@ -0,0 +1,72 @@
+package com.invoicescoring.repository;
+
+import com.invoicescoring.dto.InvoiceSummary;
+import com.invoicescoring.dto.InvoiceTotals;
+import com.invoicescoring.dto.MonthlyStats;
+import com.invoicescoring.model.GlobalCounters;
+import com.invoicescoring.model.Invoice;
+import com.invoicescoring.model.MonthlyAggregate;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+// Queries that derived repository methods can't express (inclusive month ranges, aggregations)
+public interface InvoiceRepositoryCustom {
+
+    // List columns of all of a depot's invoices, newest first
+    List<InvoiceSummary> findDepotSummaries(String depotId);
+
+    // List columns of a depot's invoices dated inside the given month (first and last day included), newest first
+    List<InvoiceSummary> findMonthSummaries(String depotId, YearMonth month);
+
+    // List columns of a depot's invoices dated in [from, toExclusive), newest first
+    List<InvoiceSummary> findSummariesInRange(String depotId, LocalDate from, LocalDate toExclusive);
+
+    // Full invoices of a depot dated in [from, toExclusive), oldest first
+    List<Invoice> findInvoicesInRange(String depotId, LocalDate from, LocalDate toExclusive);
+
+    // Keyset page of a depot's invoices ordered by (date, id) descending, starting after the given key
+    List<InvoiceSummary> findDepotPage(String depotId, LocalDate afterDate, String afterId, int limit);
+
+    // Cursor-backed stream of a depot's invoices, newest first; the caller must close it
+    Stream<Invoice> streamDepotInvoices(String depotId);
+
+    // Cursor-backed stream for exports; depotId and both dates are optional ([from, toExclusive))
+    Stream<Invoice> streamForExport(String depotId, LocalDate from, LocalDate toExclusive);
+
+    // countDocuments for a depot-month, without loading the invoices
+    long countMonthInvoices(String depotId, YearMonth month);
+
+    // Amount, count and score of a depot's invoices dated in [from, toExclusive)
+    InvoiceTotals totalsInRange(String depotId, LocalDate from, LocalDate toExclusive);
+
+    // Per calendar month (1-12) totals over the depot's whole history, grouped by the database
+    List<MonthlyStats> monthlyStats(String depotId);
+
+    // The same, limited to one calendar year
+    List<MonthlyStats> monthlyStatsForYear(String depotId, int year);
+
+    // Invoices of a depot-month with only the fields scoring reads and writes
+    List<Invoice> findMonthInvoicesForScoring(String depotId, YearMonth month);
+
+    // Write score/discount/totalAfterDiscount of each invoice in one unordered bulk request
+    void bulkUpdateScores(List<Invoice> invoices);
+
+    // Every stored invoice number, read off a cursor with only that field; the caller must close it
+    Stream<String> streamInvoiceNos();
+
+    // Which of the given invoice numbers are already stored, in one $in query
+    Set<String> findExistingInvoiceNos(Collection<String> invoiceNos);
+
+    // Unordered insertMany; returns the invoices that were actually inserted (ids assigned up front)
+    List<Invoice> insertUnordered(List<Invoice> invoices);
+
+    // Sum and count of a depot-month computed by the database, not yet saved
+    MonthlyAggregate summarizeMonth(String depotId, YearMonth month);
+
+    // Count and amount of all invoices computed with $group/$sum, not yet saved
+    GlobalCounters summarizeAll();
+}
@@ -0,0 +1,298 @@
+package com.invoicescoring.repository;
+
+import com.invoicescoring.dto.InvoiceSummary;
+import com.invoicescoring.dto.InvoiceTotals;
+import com.invoicescoring.dto.MonthlyStats;
+import com.invoicescoring.model.GlobalCounters;
+import com.invoicescoring.model.Invoice;
+import com.invoicescoring.model.MonthlyAggregate;
+import com.mongodb.bulk.BulkWriteError;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.DateOperators;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+public class InvoiceRepositoryCustomImpl implements InvoiceRepositoryCustom {
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Override
+    public List<InvoiceSummary> findDepotSummaries(String depotId) {
+        return findSummaries(Query.query(Criteria.where("depotId").is(depotId)).with(depotPageSort()));
+    }
+
+    @Override
+    public List<InvoiceSummary> findMonthSummaries(String depotId, YearMonth month) {
+        return findSummaries(Query.query(monthCriteria(depotId, month)).with(Sort.by(Sort.Direction.DESC, "date")));
+    }
+
+    @Override
+    public List<InvoiceSummary> findSummariesInRange(String depotId, LocalDate from, LocalDate toExclusive) {
+        Query query = Query.query(rangeCriteria(depotId, from, toExclusive))
+                .with(Sort.by(Sort.Direction.DESC, "date"));
+        return findSummaries(query);
+    }
+
+    @Override
+    public List<Invoice> findInvoicesInRange(String depotId, LocalDate from, LocalDate toExclusive) {
+        Query query = Query.query(rangeCriteria(depotId, from, toExclusive))
+                .with(Sort.by(Sort.Direction.ASC, "date"));
+        return mongoTemplate.find(query, Invoice.class);
+    }
+
+    @Override
+    public List<InvoiceSummary> findDepotPage(String depotId, LocalDate afterDate, String afterId, int limit) {
+        Criteria criteria = Criteria.where("depotId").is(depotId);
+        if (afterDate != null && afterId != null) {
+            criteria = criteria.orOperator(
+                    Criteria.where("date").lt(afterDate),
+                    Criteria.where("date").is(afterDate).and("id").lt(afterId));
+        }
+
+        Query query = Query.query(criteria).with(depotPageSort()).limit(limit);
+        return findSummaries(query);
+    }
+
+    @Override
+    public Stream<Invoice> streamDepotInvoices(String depotId) {
+        Query query = Query.query(Criteria.where("depotId").is(depotId)).with(depotPageSort());
+        return mongoTemplate.stream(query, Invoice.class);
+    }
+
+    @Override
+    public Stream<Invoice> streamForExport(String depotId, LocalDate from, LocalDate toExclusive) {
+        Criteria criteria = new Criteria();
+        if (depotId != null) {
+            criteria = criteria.and("depotId").is(depotId);
+        }
+        if (from != null || toExclusive != null) {
+            Criteria date = criteria.and("date");
+            if (from != null) {
+                date.gte(from);
+            }
+            if (toExclusive != null) {
+                date.lt(toExclusive);
+            }
+        }
+
+        // Exact reverse of the depot_date_id index, so Mongo walks it backwards instead of sorting in memory
+        Query query = Query.query(criteria)
+                .with(Sort.by(Sort.Direction.DESC, "depotId").and(Sort.by(Sort.Direction.ASC, "date")))
+                .cursorBatchSize(1000);
+        return mongoTemplate.stream(query, Invoice.class);
+    }
+
+    @Override
+    public long countMonthInvoices(String depotId, YearMonth month) {
+        return mongoTemplate.count(Query.query(monthCriteria(depotId, month)), Invoice.class);
+    }
+
+    @Override
+    public InvoiceTotals totalsInRange(String depotId, LocalDate from, LocalDate toExclusive) {
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.match(rangeCriteria(depotId, from, toExclusive)),
+                Aggregation.group()
+                        .sum("amount").as("totalAmount")
+                        .count().as("invoiceCount")
+                        .sum("score").as("totalScore"));
+
+        Document result = mongoTemplate.aggregate(aggregation, Invoice.class, Document.class)
+                .getUniqueMappedResult();
+
+        InvoiceTotals totals = new InvoiceTotals();
+        if (result != null) {
+            totals.setTotalAmount(((Number) result.get("totalAmount")).longValue());
+            totals.setInvoiceCount(((Number) result.get("invoiceCount")).longValue());
+            totals.setTotalScore(((Number) result.get("totalScore")).intValue());
+        }
+        return totals;
+    }
+
+    @Override
+    public List<MonthlyStats> monthlyStats(String depotId) {
+        return monthlyStats(Criteria.where("depotId").is(depotId));
+    }
+
+    @Override
+    public List<MonthlyStats> monthlyStatsForYear(String depotId, int year) {
+        return monthlyStats(rangeCriteria(depotId, LocalDate.of(year, 1, 1), LocalDate.of(year + 1, 1, 1)));
+    }
+
+    private List<MonthlyStats> monthlyStats(Criteria criteria) {
+        // LocalDate is stored as midnight in the JVM zone, so extract the month in that zone too
+        DateOperators.Timezone zone = DateOperators.Timezone.valueOf(ZoneId.systemDefault().getId());
+
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.match(criteria),
+                Aggregation.project("amount", "score")
+                        .and(DateOperators.Month.monthOf("date").withTimezone(zone)).as("month"),
+                Aggregation.group("month")
+                        .sum("amount").as("totalAmount")
+                        .count().as("invoiceCount")
+                        .sum("score").as("totalScore"));
+
+        List<MonthlyStats> stats = new ArrayList<>();
+        for (int month = 1; month <= 12; month++) {
+            stats.add(new MonthlyStats(month, 0L, 0L, 0));
+        }
+
+        for (Document row : mongoTemplate.aggregate(aggregation, Invoice.class, Document.class)) {
+            MonthlyStats monthStats = stats.get(((Number) row.get("_id")).intValue() - 1);
+            monthStats.setTotalAmount(((Number) row.get("totalAmount")).longValue());
+            monthStats.setInvoiceCount(((Number) row.get("invoiceCount")).longValue());
+            monthStats.setTotalScore(((Number) row.get("totalScore")).intValue());
+        }
+        return stats;
+    }
+
+    @Override
+    public List<Invoice> findMonthInvoicesForScoring(String depotId, YearMonth month) {
+        Query query = Query.query(monthCriteria(depotId, month));
+        query.fields().include("amount", "score", "discount", "totalAfterDiscount");
+        return mongoTemplate.find(query, Invoice.class);
+    }
+
+    @Override
+    public void bulkUpdateScores(List<Invoice> invoices) {
+        if (invoices.isEmpty()) {
+            return;
+        }
+
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Invoice.class);
+        for (Invoice invoice : invoices) {
+            Update update = new Update()
+                    .set("score", invoice.getScore())
+                    .set("discount", invoice.getDiscount())
+                    .set("totalAfterDiscount", invoice.getTotalAfterDiscount());
+            bulk.updateOne(Query.query(Criteria.where("_id").is(invoice.getId())), update);
+        }
+        bulk.execute();
+    }
+
+    @Override
+    public Stream<String> streamInvoiceNos() {
+        Query query = new Query();
+        query.fields().include("invoiceNo").exclude("_id");
+        return mongoTemplate.stream(query, Document.class, mongoTemplate.getCollectionName(Invoice.class))
+                .map(row -> row.getString("invoiceNo"));
+    }
+
+    @Override
+    public Set<String> findExistingInvoiceNos(Collection<String> invoiceNos) {
+        if (invoiceNos.isEmpty()) {
+            return new HashSet<>();
+        }
+        Query query = Query.query(Criteria.where("invoiceNo").in(invoiceNos));
+        return new HashSet<>(mongoTemplate.findDistinct(query, "invoiceNo", Invoice.class, String.class));
+    }
+
+    @Override
+    public List<Invoice> insertUnordered(List<Invoice> invoices) {
+        if (invoices.isEmpty()) {
+            return invoices;
+        }
+
+        // Bulk inserts don't write generated ids back to the objects, so assign them here
+        for (Invoice invoice : invoices) {
+            if (invoice.getId() == null) {
+                invoice.setId(new ObjectId().toHexString());
+            }
+        }
+
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Invoice.class);
+        bulk.insert(invoices);
+        try {
+            bulk.execute();
+            return invoices;
+        } catch (BulkOperationException e) {
+            // e.g. an invoice number taken concurrently; everything else still went in
+            Set<Integer> failed = new HashSet<>();
+            for (BulkWriteError error : e.getErrors()) {
+                failed.add(error.getIndex());
+            }
+            List<Invoice> inserted = new ArrayList<>();
+            for (int i = 0; i < invoices.size(); i++) {
+                if (!failed.contains(i)) {
+                    inserted.add(invoices.get(i));
+                }
+            }
+            return inserted;
+        }
+    }
+
+    @Override
+    public MonthlyAggregate summarizeMonth(String depotId, YearMonth month) {
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.match(monthCriteria(depotId, month)),
+                Aggregation.group().sum("amount").as("totalAmount").count().as("invoiceCount"));
+
+        Document result = mongoTemplate.aggregate(aggregation, Invoice.class, Document.class)
+                .getUniqueMappedResult();
+
+        MonthlyAggregate aggregate = new MonthlyAggregate();
+        aggregate.setId(MonthlyAggregate.idFor(depotId, month));
+        aggregate.setDepotId(depotId);
+        aggregate.setYear(month.getYear());
+        aggregate.setMonth(month.getMonthValue());
+        if (result != null) {
+            aggregate.setTotalAmount(((Number) result.get("totalAmount")).longValue());
+            aggregate.setInvoiceCount(((Number) result.get("invoiceCount")).longValue());
+        }
+        return aggregate;
+    }
+
+    @Override
+    public GlobalCounters summarizeAll() {
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.group().sum("amount").as("totalAmount").count().as("totalInvoices"));
+
+        Document result = mongoTemplate.aggregate(aggregation, Invoice.class, Document.class)
+                .getUniqueMappedResult();
+
+        GlobalCounters counters = new GlobalCounters();
+        counters.setId(GlobalCounters.INVOICES_ID);
+        if (result != null) {
+            counters.setTotalAmount(((Number) result.get("totalAmount")).longValue());
+            counters.setTotalInvoices(((Number) result.get("totalInvoices")).longValue());
+        }
+        return counters;
+    }
+
+    // Only the list columns are read from Mongo and decoded
+    private List<InvoiceSummary> findSummaries(Query query) {
+        query.fields().include(InvoiceSummary.FIELDS);
+        return mongoTemplate.query(Invoice.class).as(InvoiceSummary.class).matching(query).all();
+    }
+
+    private static Sort depotPageSort() {
+        return Sort.by(Sort.Direction.DESC, "date").and(Sort.by(Sort.Direction.DESC, "id"));
+    }
+
+    // Date range covering the whole month: [first day, first day of next month)
+    static Criteria monthCriteria(String depotId, YearMonth month) {
+        return rangeCriteria(depotId, month.atDay(1), month.plusMonths(1).atDay(1));
+    }
+
+    static Criteria rangeCriteria(String depotId, LocalDate from, LocalDate toExclusive) {
+        return Criteria.where("depotId").is(depotId)
+                .and("date").gte(from).lt(toExclusive);
+    }
+}
@@ -0,0 +1,11 @@
+package com.invoicescoring.repository;
+
+import com.invoicescoring.model.MonthlyAggregate;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+import java.util.List;
+
+@Repository
+public interface MonthlyAggregateRepository extends MongoRepository<MonthlyAggregate, String> {
+    List<MonthlyAggregate> findByYearAndMonth(int year, int month);
+}
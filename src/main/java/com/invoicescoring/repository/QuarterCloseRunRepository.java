@@ -0,0 +1,11 @@
+package com.invoicescoring.repository;
+
+import com.invoicescoring.model.QuarterCloseRun;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+import java.util.List;
+
+@Repository
+public interface QuarterCloseRunRepository extends MongoRepository<QuarterCloseRun, String> {
+    List<QuarterCloseRun> findByStatus(String status);
+}
@@ -0,0 +1,146 @@
+package com.invoicescoring.service;
+
+import com.invoicescoring.dto.DashboardSnapshot;
+import com.invoicescoring.dto.DashboardStats;
+import com.invoicescoring.dto.DepotSummary;
+import com.invoicescoring.model.Depot;
+import com.invoicescoring.model.GlobalCounters;
+import com.invoicescoring.model.MonthlyAggregate;
+import com.invoicescoring.repository.DepotRepository;
+import com.invoicescoring.repository.MonthlyAggregateRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+@Service
+public class DashboardSnapshotService {
+
+    @Autowired
+    private DepotRepository depotRepository;
+
+    @Autowired
+    private MonthlyAggregateRepository monthlyAggregateRepository;
+
+    @Autowired
+    private GlobalCounterService globalCounterService;
+
+    // Oldest snapshot a reader may be served
+    @Value("${dashboard.snapshot.max-staleness-ms:10000}")
+    private long maxStalenessMs;
+
+    private volatile DashboardSnapshot snapshot;
+
+    // Bumped on every write that can change the dashboard
+    private final AtomicLong writeVersion = new AtomicLong();
+    private volatile long snapshotVersion = -1;
+
+    // Not synchronized: a virtual thread waiting on Mongo inside a monitor would pin its carrier thread
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+
+    // Mark the snapshot out of date; the next scheduled refresh rebuilds it
+    public void invalidate() {
+        writeVersion.incrementAndGet();
+    }
+
+    // Current snapshot, rebuilt inline only if it's older than the max staleness
+    public DashboardSnapshot getSnapshot() {
+        DashboardSnapshot current = snapshot;
+        if (current == null || isExpired(current)) {
+            current = rebuild();
+        }
+        return current;
+    }
+
+    // Background refresh so pollers normally never wait on Mongo
+    @Scheduled(fixedDelayString = "${dashboard.snapshot.refresh-interval-ms:2000}")
+    public void refreshIfNeeded() {
+        DashboardSnapshot current = snapshot;
+        if (current == null || snapshotVersion != writeVersion.get() || isExpired(current)) {
+            rebuild();
+        }
+    }
+
+    private boolean isExpired(DashboardSnapshot current) {
+        return System.currentTimeMillis() - current.getBuiltAtMillis() > maxStalenessMs;
+    }
+
+    private DashboardSnapshot rebuild() {
+        rebuildLock.lock();
+        try {
+            return rebuildLocked();
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    private DashboardSnapshot rebuildLocked() {
+        long version = writeVersion.get();
+
+        List<Depot> depots = depotRepository.findAllByOrderByCreatedDateDesc();
+        GlobalCounters counters = globalCounterService.getInvoiceCounters();
+        DashboardStats stats = new DashboardStats(depots.size(), counters.getTotalInvoices(), counters.getTotalAmount());
+
+        // Current-month figures for all depots in one query
+        YearMonth currentMonth = YearMonth.now();
+        Map<String, MonthlyAggregate> monthByDepot = new HashMap<>();
+        for (MonthlyAggregate aggregate : monthlyAggregateRepository.findByYearAndMonth(
+                currentMonth.getYear(), currentMonth.getMonthValue())) {
+            monthByDepot.put(aggregate.getDepotId(), aggregate);
+        }
+
+        List<DepotSummary> summaries = new ArrayList<>();
+        for (Depot depot : depots) {
+            summaries.add(summarize(depot, monthByDepot.get(depot.getId())));
+        }
+
+        // Hash of what the dashboard shows, so a staleness rebuild that finds nothing new keeps the tag
+        // and pollers keep getting 304s. The unchanged snapshot is reused, generatedAt included, so the
+        // body stays identical to what the tag was first sent with.
+        long builtAt = System.currentTimeMillis();
+        String etag = contentTag(stats, summaries);
+        DashboardSnapshot current = snapshot;
+        DashboardSnapshot rebuilt = current != null && current.getEtag().equals(etag)
+                ? new DashboardSnapshot(current.getStats(), current.getDepots(), current.getGeneratedAt(), etag, builtAt)
+                : new DashboardSnapshot(stats, summaries, LocalDateTime.now(), etag, builtAt);
+
+        snapshot = rebuilt;
+        snapshotVersion = version;
+        return rebuilt;
+    }
+
+    private static String contentTag(DashboardStats stats, List<DepotSummary> summaries) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(stats.toString().getBytes(StandardCharsets.UTF_8));
+            digest.update(summaries.toString().getBytes(StandardCharsets.UTF_8));
+            return "\"" + HexFormat.of().formatHex(digest.digest(), 0, 16) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("SHA-256 not available", e);
+        }
+    }
+
+    // month may be null when the depot has no invoices this month
+    static DepotSummary summarize(Depot depot, MonthlyAggregate month) {
+        return new DepotSummary(
+                depot.getId(),
+                depot.getName(),
+                depot.getRemainingScore() != null ? depot.getRemainingScore() : 0,
+                month != null ? month.getTotalAmount() : 0,
+                month != null ? month.getInvoiceCount() : 0,
+                month != null && month.getScore() != null ? month.getScore() : 0,
+                month != null && month.getDiscount() != null ? month.getDiscount() : 0.0);
+    }
+}
@@ -0,0 +1,111 @@
+package com.invoicescoring.service;
+
+import com.invoicescoring.dto.DepotDetail;
+import com.invoicescoring.dto.InvoiceSummary;
+import com.invoicescoring.dto.InvoiceTotals;
+import com.invoicescoring.dto.MonthlyStats;
+import com.invoicescoring.model.CalculationRecord;
+import com.invoicescoring.model.Depot;
+import com.invoicescoring.repository.CalculationRecordRepository;
+import com.invoicescoring.repository.InvoiceRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.stereotype.Service;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+// Builds the depot detail page in one call. The independent lookups run in parallel on
+// depotDetailExecutor, so the response takes as long as the slowest one, not the sum.
+@Service
+public class DepotDetailService {
+
+    @Autowired
+    private DepotService depotService;
+
+    @Autowired
+    private ScoreCalculationService scoreCalculationService;
+
+    @Autowired
+    private InvoiceRepository invoiceRepository;
+
+    @Autowired
+    private CalculationRecordRepository calculationRecordRepository;
+
+    @Autowired
+    @Qualifier("depotDetailExecutor")
+    private AsyncTaskExecutor depotDetailExecutor;
+
+    public Optional<DepotDetail> getDepotDetail(String depotId) {
+        YearMonth now = YearMonth.now();
+        YearMonth quarterStart = QuarterCloseService.quarterStartOf(now);
+
+        CompletableFuture<Optional<Depot>> depot = async(() -> depotService.getDepotById(depotId));
+        CompletableFuture<Integer> carryover = async(() -> scoreCalculationService.getCarryoverScore(depotId, now));
+        CompletableFuture<List<MonthlyStats>> months = async(
+                () -> invoiceRepository.monthlyStatsForYear(depotId, now.getYear()));
+        CompletableFuture<List<Integer>> calculatedMonths = async(() -> calculatedMonths(depotId, now.getYear()));
+        CompletableFuture<List<InvoiceSummary>> monthInvoices = async(
+                () -> invoiceRepository.findMonthSummaries(depotId, now));
+        CompletableFuture<InvoiceTotals> quarterTotals = async(() -> invoiceRepository.totalsInRange(depotId,
+                quarterStart.atDay(1), quarterStart.plusMonths(3).atDay(1)));
+
+        try {
+            CompletableFuture.allOf(depot, carryover, months, calculatedMonths, monthInvoices, quarterTotals).join();
+        } catch (CompletionException e) {
+            throw new RuntimeException("Loading depot detail failed: " + e.getCause().getMessage(), e.getCause());
+        }
+
+        if (depot.join().isEmpty()) {
+            return Optional.empty();
+        }
+
+        DepotDetail detail = new DepotDetail();
+        detail.setDepot(depot.join().get());
+        Integer remainingScore = detail.getDepot().getRemainingScore();
+        detail.setRemainingScore(remainingScore != null ? remainingScore : 0);
+        Integer carryoverScore = carryover.join();
+        detail.setCarryoverScore(carryoverScore != null ? carryoverScore : 0);
+        detail.setCurrentQuarter(now.toString());
+        detail.setPreviousQuarter(now.minusMonths(3).toString());
+        detail.setYear(now.getYear());
+        detail.setMonths(months.join());
+        detail.setCalculatedMonths(calculatedMonths.join());
+        detail.setCurrentMonth(now.getMonthValue());
+        detail.setCurrentMonthInvoices(monthInvoices.join());
+        detail.setCurrentMonthInvoiceCount(monthInvoices.join().size());
+        detail.setQuarterTotals(quarterTotals.join());
+        return Optional.of(detail);
+    }
+
+    // A quarter is calculated in the month after it ends: Q1 in April, Q2 in July, Q3 in October
+    // and the previous year's Q4 in January
+    private List<Integer> calculatedMonths(String depotId, int year) {
+        Set<YearMonth> settled = new HashSet<>();
+        try (Stream<CalculationRecord> records = calculationRecordRepository.streamByDepotId(depotId)) {
+            records.filter(record -> record.getStatus() == null
+                            || CalculationRecord.COMPLETED.equals(record.getStatus()))
+                    .forEach(record -> settled.add(record.getQuarter()));
+        }
+
+        List<Integer> calculated = new ArrayList<>();
+        for (int month : new int[] { 1, 4, 7, 10 }) {
+            if (settled.contains(YearMonth.of(year, month).minusMonths(3))) {
+                calculated.add(month);
+            }
+        }
+        return calculated;
+    }
+
+    private <T> CompletableFuture<T> async(Supplier<T> lookup) {
+        return CompletableFuture.supplyAsync(lookup, depotDetailExecutor);
+    }
+}
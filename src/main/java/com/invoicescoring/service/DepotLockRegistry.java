@@ -0,0 +1,39 @@
+package com.invoicescoring.service;
+
+import com.invoicescoring.model.MonthlyAggregate;
+import org.springframework.stereotype.Component;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+// In-JVM locks keyed by depot, so work on different depots runs in parallel
+@Component
+public class DepotLockRegistry {
+
+    private final StripedLocks quarterLocks = new StripedLocks(64);
+
+    // Enough stripes that busy depots rarely share one
+    private final StripedLocks monthLocks = new StripedLocks(1024);
+
+    // Serializes quarter calculations of one depot and quarter inside this instance
+    public ReentrantLock quarterLock(String depotId, YearMonth quarterStart) {
+        return quarterLocks.lockFor(depotId + ":" + quarterStart);
+    }
+
+    // Serializes writes to a depot's months: aggregate delta, invoice write and rescoring happen as one
+    // step. Several months are locked in a fixed order; release with StripedLocks.unlockAll.
+    public List<ReentrantLock> lockMonths(String depotId, Collection<YearMonth> months) {
+        List<String> keys = new ArrayList<>();
+        for (YearMonth month : months) {
+            keys.add(MonthlyAggregate.idFor(depotId, month));
+        }
+        return monthLocks.lockAll(keys);
+    }
+
+    // Locks the depot-months of several depots at once, keyed like MonthlyAggregate ids (depotId:yyyy-MM)
+    public List<ReentrantLock> lockMonthKeys(Collection<String> depotMonthKeys) {
+        return monthLocks.lockAll(depotMonthKeys);
+    }
+}
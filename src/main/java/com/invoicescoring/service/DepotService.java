@@ -1,13 +1,30 @@
 package com.invoicescoring.service;
 
+import com.invoicescoring.dto.DepotListItem;
+import com.invoicescoring.dto.DepotPage;
 import com.invoicescoring.dto.DepotRequest;
 import com.invoicescoring.model.Depot;
+import com.invoicescoring.model.MonthlyAggregate;
 import com.invoicescoring.repository.DepotRepository;
+import com.invoicescoring.repository.MonthlyAggregateRepository;
+import com.invoicescoring.config.CacheConfig;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 @Service
 public class DepotService {
@@ -15,44 +32,138 @@ public class DepotService {
     @Autowired
     private DepotRepository depotRepository;
 
+    @Autowired
+    private DashboardSnapshotService dashboardSnapshotService;
+
+    @Autowired
+    private LiveUpdateService liveUpdateService;
+
+    @Autowired
+    private MonthlyAggregateRepository monthlyAggregateRepository;
+
+    // Columns the listing can be sorted by
+    private static final Set<String> SORT_FIELDS = Set.of("name", "phone", "createdDate", "remainingScore");
+
     // Create new depot
+    @CacheEvict(cacheNames = CacheConfig.DEPOT_LIST, allEntries = true)
     public Depot createDepot(DepotRequest request) {
         Depot depot = new Depot();
         depot.setName(request.getName());
+        depot.setNameKey(Depot.nameKeyOf(request.getName()));
         depot.setPhone(request.getPhone());
+        depot.setPhoneKey(Depot.phoneKeyOf(request.getPhone()));
         depot.setAddress(request.getAddress());
+        depot.setAddressKey(Depot.addressKeyOf(request.getAddress()));
         depot.setAdditionalInfo(request.getAdditionalInfo());
         depot.setRemainingScore(request.getRemainingScore() != null ? request.getRemainingScore() : 0); // NEW
         depot.setCreatedDate(LocalDateTime.now());
-        return depotRepository.save(depot);
+        Depot saved = depotRepository.save(depot);
+        dashboardSnapshotService.invalidate();
+        liveUpdateService.depotChanged("created", saved.getId(), saved);
+        return saved;
+    }
+
+    // Depots saved before the search keys existed; only the keys are written, the fields stay as entered
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillSearchKeys() {
+        List<Depot> depots = depotRepository.findByNameKeyIsNullOrPhoneKeyIsNullOrAddressKeyIsNull();
+        if (depots.isEmpty()) {
+            return;
+        }
+        for (Depot depot : depots) {
+            depot.setNameKey(Depot.nameKeyOf(depot.getName()));
+            depot.setPhoneKey(Depot.phoneKeyOf(depot.getPhone()));
+            depot.setAddressKey(Depot.addressKeyOf(depot.getAddress()));
+        }
+        depotRepository.saveAll(depots);
+        System.out.println("Backfilled search keys of " + depots.size() + " depots");
     }
 
     // Get all depots
+    @Cacheable(cacheNames = CacheConfig.DEPOT_LIST, key = "'all'")
     public List<Depot> getAllDepots() {
         return depotRepository.findAllByOrderByCreatedDateDesc();
     }
 
+    // One page of depots matching the search, optionally with this month's figures for each row.
+    // sort "relevance" (the default when searching) lists matches by name, alphabetically, shortest first.
+    public DepotPage searchDepots(String search, int page, int size, String sort, String direction,
+                                  boolean includeSummary) {
+        boolean searching = search != null && !search.isBlank();
+        String sortField = sort != null ? sort : (searching ? "relevance" : "createdDate");
+
+        Sort order;
+        if ("relevance".equals(sortField)) {
+            // Walks the nameKey index that the prefix match already uses
+            order = Sort.by(Sort.Direction.ASC, "nameKey").and(Sort.by(Sort.Direction.ASC, "id"));
+        } else if (SORT_FIELDS.contains(sortField)) {
+            Sort.Direction dir = "asc".equalsIgnoreCase(direction) ? Sort.Direction.ASC : Sort.Direction.DESC;
+            // id breaks ties so rows don't jump between pages
+            order = Sort.by(dir, sortField).and(Sort.by(dir, "id"));
+        } else {
+            throw new RuntimeException("Cannot sort depots by " + sortField);
+        }
+
+        List<Depot> depots = depotRepository.searchDepots(search, PageRequest.of(page, size, order));
+        long total = depotRepository.countDepots(search);
+
+        // This month's aggregates for the whole page in one _id lookup
+        Map<String, MonthlyAggregate> monthByDepot = new HashMap<>();
+        if (includeSummary && !depots.isEmpty()) {
+            YearMonth currentMonth = YearMonth.now();
+            List<String> ids = new ArrayList<>();
+            for (Depot depot : depots) {
+                ids.add(MonthlyAggregate.idFor(depot.getId(), currentMonth));
+            }
+            for (MonthlyAggregate aggregate : monthlyAggregateRepository.findAllById(ids)) {
+                monthByDepot.put(aggregate.getDepotId(), aggregate);
+            }
+        }
+
+        List<DepotListItem> items = new ArrayList<>();
+        for (Depot depot : depots) {
+            items.add(new DepotListItem(depot, includeSummary
+                    ? DashboardSnapshotService.summarize(depot, monthByDepot.get(depot.getId()))
+                    : null));
+        }
+        int totalPages = (int) ((total + size - 1) / size);
+        return new DepotPage(items, page, size, total, totalPages);
+    }
+
     // Get depot by ID
+    @Cacheable(cacheNames = CacheConfig.DEPOT, key = "#depotId")
     public Optional<Depot> getDepotById(String depotId) {
         return depotRepository.findById(depotId);
     }
 
     // Update depot
+    @Caching(evict = {
+            @CacheEvict(cacheNames = CacheConfig.DEPOT, key = "#depotId"),
+            @CacheEvict(cacheNames = CacheConfig.DEPOT_LIST, allEntries = true) })
     public Depot updateDepot(String depotId, DepotRequest request) {
         Depot depot = depotRepository.findById(depotId)
                 .orElseThrow(() -> new RuntimeException("Depot not found"));
 
         depot.setName(request.getName());
+        depot.setNameKey(Depot.nameKeyOf(request.getName()));
         depot.setPhone(request.getPhone());
+        depot.setPhoneKey(Depot.phoneKeyOf(request.getPhone()));
         depot.setAddress(request.getAddress());
+        depot.setAddressKey(Depot.addressKeyOf(request.getAddress()));
         depot.setAdditionalInfo(request.getAdditionalInfo());
         depot.setRemainingScore(request.getRemainingScore() != null ? request.getRemainingScore() : 0); // NEW
         depot.setUpdatedDate(LocalDateTime.now());
 
-        return depotRepository.save(depot);
+        Depot saved = depotRepository.save(depot);
+        dashboardSnapshotService.invalidate();
+        liveUpdateService.depotChanged("updated", depotId, saved);
+        return saved;
     }
 
     // Update only remaining score
+    @Caching(evict = {
+            @CacheEvict(cacheNames = CacheConfig.DEPOT, key = "#depotId"),
+            @CacheEvict(cacheNames = CacheConfig.DEPOT_LIST, allEntries = true) })
     public Depot updateRemainingScore(String depotId, Integer remainingScore) {
         Depot depot = depotRepository.findById(depotId)
                 .orElseThrow(() -> new RuntimeException("Depot not found"));
@@ -60,12 +171,20 @@ public class DepotService {
         depot.setRemainingScore(remainingScore != null ? remainingScore : 0);
         depot.setUpdatedDate(LocalDateTime.now());
 
-        return depotRepository.save(depot);
+        Depot saved = depotRepository.save(depot);
+        dashboardSnapshotService.invalidate();
+        liveUpdateService.depotChanged("updated", depotId, saved);
+        return saved;
     }
 
     // Delete depot
+    @Caching(evict = {
+            @CacheEvict(cacheNames = CacheConfig.DEPOT, key = "#depotId"),
+            @CacheEvict(cacheNames = CacheConfig.DEPOT_LIST, allEntries = true) })
     public void deleteDepot(String depotId) {
         depotRepository.deleteById(depotId);
+        dashboardSnapshotService.invalidate();
+        liveUpdateService.depotChanged("deleted", depotId, null);
     }
 
     // Get depot count
@@ -0,0 +1,123 @@
+package com.invoicescoring.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.invoicescoring.model.CalculationRecord;
+import com.invoicescoring.model.Invoice;
+import com.invoicescoring.repository.CalculationRecordRepository;
+import com.invoicescoring.repository.InvoiceRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Iterator;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+// Writes large extracts row by row off a Mongo cursor, so memory use doesn't depend on the row count
+@Service
+public class ExportService {
+
+    public enum Format {
+        CSV, NDJSON
+    }
+
+    private static final String[] INVOICE_COLUMNS = {
+            "id", "invoiceNo", "depotId", "depotName", "date", "phone", "address",
+            "amount", "score", "discount", "totalAfterDiscount", "createdDate", "updatedDate" };
+
+    private static final String[] RECORD_COLUMNS = {
+            "id", "depotId", "quarter", "totalAmount", "totalScore", "discount",
+            "totalAfterDiscount", "remainderScore", "carryoverScore", "calculatedDate" };
+
+    // Push bytes to the client every this many rows
+    private static final int FLUSH_EVERY = 1000;
+
+    @Autowired
+    private InvoiceRepository invoiceRepository;
+
+    @Autowired
+    private CalculationRecordRepository calculationRecordRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    // Invoices, optionally limited to a depot and an inclusive date range
+    public void writeInvoices(String depotId, LocalDate from, LocalDate to, Format format, boolean gzip,
+            OutputStream out) throws IOException {
+        LocalDate toExclusive = to != null ? to.plusDays(1) : null;
+        try (Stream<Invoice> invoices = invoiceRepository.streamForExport(depotId, from, toExclusive)) {
+            write(invoices.iterator(), format, gzip, out, INVOICE_COLUMNS, invoice -> new Object[] {
+                    invoice.getId(), invoice.getInvoiceNo(), invoice.getDepotId(), invoice.getDepotName(),
+                    invoice.getDate(), invoice.getPhone(), invoice.getAddress(), invoice.getAmount(),
+                    invoice.getScore(), invoice.getDiscount(), invoice.getTotalAfterDiscount(),
+                    invoice.getCreatedDate(), invoice.getUpdatedDate() });
+        }
+    }
+
+    // Quarter settlement history, for one depot or all of them
+    public void writeCalculationRecords(String depotId, Format format, boolean gzip, OutputStream out)
+            throws IOException {
+        try (Stream<CalculationRecord> records = depotId != null
+                ? calculationRecordRepository.streamByDepotId(depotId)
+                : calculationRecordRepository.streamAllBy()) {
+            write(records.iterator(), format, gzip, out, RECORD_COLUMNS, record -> new Object[] {
+                    record.getId(), record.getDepotId(), record.getQuarter(), record.getTotalAmount(),
+                    record.getTotalScore(), record.getDiscount(), record.getTotalAfterDiscount(),
+                    record.getRemainderScore(), record.getCarryoverScore(), record.getCalculatedDate() });
+        }
+    }
+
+    private <T> void write(Iterator<T> rows, Format format, boolean gzip, OutputStream out, String[] columns,
+            Function<T, Object[]> csvRow) throws IOException {
+        OutputStream target = gzip ? new GZIPOutputStream(out, 64 * 1024) : out;
+        Writer writer = new BufferedWriter(new OutputStreamWriter(target, StandardCharsets.UTF_8), 64 * 1024);
+
+        if (format == Format.CSV) {
+            writeCsvLine(writer, columns);
+        }
+
+        int count = 0;
+        while (rows.hasNext()) {
+            T row = rows.next();
+            if (format == Format.CSV) {
+                writeCsvLine(writer, csvRow.apply(row));
+            } else {
+                writer.write(objectMapper.writeValueAsString(row));
+                writer.write('\n');
+            }
+            if (++count % FLUSH_EVERY == 0) {
+                writer.flush();
+            }
+        }
+
+        // Finishes the gzip trailer too
+        writer.close();
+    }
+
+    private void writeCsvLine(Writer writer, Object[] values) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            writer.write(csvValue(values[i]));
+        }
+        writer.write('\n');
+    }
+
+    private String csvValue(Object value) {
+        if (value == null) {
+            return "";
+        }
+        String text = value.toString();
+        if (text.indexOf(',') >= 0 || text.indexOf('"') >= 0 || text.indexOf('\n') >= 0 || text.indexOf('\r') >= 0) {
+            return "\"" + text.replace("\"", "\"\"") + "\"";
+        }
+        return text;
+    }
+}
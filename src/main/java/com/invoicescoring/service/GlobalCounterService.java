@@ -0,0 +1,54 @@
+package com.invoicescoring.service;
+
+import com.invoicescoring.model.GlobalCounters;
+import com.invoicescoring.repository.InvoiceRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+import java.time.LocalDateTime;
+
+@Service
+public class GlobalCounterService {
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private InvoiceRepository invoiceRepository;
+
+    // Seed the counters from the invoices collection if they don't exist yet (run once at startup)
+    public void initializeCounters() {
+        if (mongoTemplate.findById(GlobalCounters.INVOICES_ID, GlobalCounters.class) == null) {
+            try {
+                mongoTemplate.insert(invoiceRepository.summarizeAll());
+                System.out.println("Invoice counters initialized");
+            } catch (DuplicateKeyException e) {
+                // Another instance seeded them first
+            }
+        }
+    }
+
+    // Add invoice count/amount deltas in one atomic update
+    public void applyInvoiceDelta(long amountDelta, long countDelta) {
+        if (amountDelta == 0 && countDelta == 0) {
+            return;
+        }
+
+        Query query = Query.query(Criteria.where("_id").is(GlobalCounters.INVOICES_ID));
+        Update update = new Update()
+                .inc("totalAmount", amountDelta)
+                .inc("totalInvoices", countDelta)
+                .set("updatedDate", LocalDateTime.now());
+        mongoTemplate.upsert(query, update, GlobalCounters.class);
+    }
+
+    // Current invoice totals; falls back to a server-side aggregation if the counters are missing
+    public GlobalCounters getInvoiceCounters() {
+        GlobalCounters counters = mongoTemplate.findById(GlobalCounters.INVOICES_ID, GlobalCounters.class);
+        return counters != null ? counters : invoiceRepository.summarizeAll();
+    }
+}
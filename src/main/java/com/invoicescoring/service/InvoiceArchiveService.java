@@ -0,0 +1,89 @@
+package com.invoicescoring.service;
+
+import com.invoicescoring.model.ArchivedInvoice;
+import com.invoicescoring.model.CalculationRecord;
+import com.invoicescoring.model.Invoice;
+import com.invoicescoring.repository.ArchivedInvoiceRepository;
+import com.invoicescoring.repository.CalculationRecordRepository;
+import com.mongodb.ErrorCategory;
+import com.mongodb.bulk.BulkWriteError;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+@Service
+public class InvoiceArchiveService {
+
+    // Keeps each bulk write and $in list well under Mongo's message limits
+    private static final int BATCH_SIZE = 1000;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private ArchivedInvoiceRepository archivedInvoiceRepository;
+
+    @Autowired
+    private CalculationRecordRepository calculationRecordRepository;
+
+    // Move a settled quarter's invoices into the archive: copy them with one unordered bulk insert per
+    // batch, then remove the originals with one deleteMany per batch. Safe to repeat after a failure.
+    public void archiveQuarter(String depotId, YearMonth quarter, List<Invoice> invoices) {
+        LocalDateTime now = LocalDateTime.now();
+
+        for (int from = 0; from < invoices.size(); from += BATCH_SIZE) {
+            List<Invoice> batch = invoices.subList(from, Math.min(from + BATCH_SIZE, invoices.size()));
+
+            List<ArchivedInvoice> archived = new ArrayList<>();
+            List<String> ids = new ArrayList<>();
+            for (Invoice invoice : batch) {
+                archived.add(ArchivedInvoice.from(invoice, quarter, now));
+                ids.add(invoice.getId());
+            }
+
+            copyToArchive(archived);
+            mongoTemplate.remove(Query.query(Criteria.where("_id").in(ids)), Invoice.class);
+        }
+    }
+
+    // Archived invoices of one depot and quarter, oldest first
+    public List<ArchivedInvoice> getArchivedInvoices(String depotId, YearMonth quarter) {
+        return archivedInvoiceRepository.findByDepotIdAndQuarterOrderByDateAsc(depotId, quarter);
+    }
+
+    // Settled quarters of a depot with their calculation results, i.e. what can be looked up in the archive
+    public List<CalculationRecord> getArchivedQuarters(String depotId) {
+        List<CalculationRecord> quarters = new ArrayList<>();
+        try (Stream<CalculationRecord> records = calculationRecordRepository.streamByDepotId(depotId)) {
+            records.filter(record -> record.getStatus() == null
+                            || CalculationRecord.COMPLETED.equals(record.getStatus()))
+                    .forEach(quarters::add);
+        }
+        quarters.sort((a, b) -> b.getQuarter().compareTo(a.getQuarter()));
+        return quarters;
+    }
+
+    private void copyToArchive(List<ArchivedInvoice> archived) {
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ArchivedInvoice.class);
+        bulk.insert(archived);
+        try {
+            bulk.execute();
+        } catch (BulkOperationException e) {
+            // Rows copied by an earlier, interrupted run already exist under the same id; anything else is real
+            for (BulkWriteError error : e.getErrors()) {
+                if (ErrorCategory.fromErrorCode(error.getCode()) != ErrorCategory.DUPLICATE_KEY) {
+                    throw new RuntimeException("Archiving invoices failed: " + error.getMessage());
+                }
+            }
+        }
+    }
+}
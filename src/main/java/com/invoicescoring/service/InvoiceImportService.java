@@ -0,0 +1,257 @@
+package com.invoicescoring.service;
+
+import com.invoicescoring.dto.ImportReport;
+import com.invoicescoring.dto.ImportRowResult;
+import com.invoicescoring.dto.InvoiceRequest;
+import com.invoicescoring.model.Invoice;
+import com.invoicescoring.repository.InvoiceRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+@Service
+public class InvoiceImportService {
+
+    private static final String[] CSV_COLUMNS = { "invoiceNo", "depotId", "date", "phone", "address", "amount" };
+
+    @Autowired
+    private InvoiceService invoiceService;
+
+    @Autowired
+    private InvoiceRepository invoiceRepository;
+
+    @Autowired
+    private InvoiceNumberFilter invoiceNumberFilter;
+
+    // Largest batch one request may import; the whole batch is checked and inserted in one go
+    @Value("${invoice.import.max-rows:5000}")
+    private int maxRows;
+
+    // Import a batch of invoices: one $in lookup, one insertMany, one rescore per depot-month
+    public ImportReport importInvoices(List<InvoiceRequest> requests) {
+        checkSize(requests.size());
+        ImportRowResult[] results = new ImportRowResult[requests.size()];
+
+        // Invoice numbers must be unique inside the batch as well as against stored invoices
+        Set<String> batchNumbers = new HashSet<>();
+        for (int i = 0; i < requests.size(); i++) {
+            InvoiceRequest request = requests.get(i);
+            String error = validate(request);
+            if (error == null && !batchNumbers.add(request.getInvoiceNo())) {
+                error = "Duplicate invoice number in batch";
+            }
+            if (error != null) {
+                results[i] = failure(i, request != null ? request.getInvoiceNo() : null, error);
+            }
+        }
+
+        // Only numbers the filter can't rule out need the $in lookup
+        Set<String> candidates = new HashSet<>();
+        for (String invoiceNo : batchNumbers) {
+            if (invoiceNumberFilter.mightContain(invoiceNo)) {
+                candidates.add(invoiceNo);
+            }
+        }
+        Set<String> existing = invoiceRepository.findExistingInvoiceNos(candidates);
+
+        List<Invoice> toInsert = new ArrayList<>();
+        Map<Invoice, Integer> rowOf = new IdentityHashMap<>(); // invoices are mutated while scoring
+        for (int i = 0; i < requests.size(); i++) {
+            if (results[i] != null) {
+                continue;
+            }
+            InvoiceRequest request = requests.get(i);
+            if (existing.contains(request.getInvoiceNo())) {
+                results[i] = failure(i, request.getInvoiceNo(), "Invoice number already exists");
+                continue;
+            }
+
+            Invoice invoice = new Invoice();
+            invoice.setInvoiceNo(request.getInvoiceNo());
+            invoice.setDepotId(request.getDepotId());
+            invoice.setDate(request.getDate());
+            invoice.setPhone(request.getPhone());
+            invoice.setAddress(request.getAddress());
+            invoice.setAmount(request.getAmount());
+            toInsert.add(invoice);
+            rowOf.put(invoice, i);
+        }
+
+        Set<Invoice> inserted = Collections.newSetFromMap(new IdentityHashMap<>());
+        inserted.addAll(invoiceService.insertBatch(toInsert));
+        for (Invoice invoice : toInsert) {
+            int row = rowOf.get(invoice);
+            results[row] = inserted.contains(invoice)
+                    ? new ImportRowResult(row + 1, invoice.getInvoiceNo(), true, "Imported", invoice.getId())
+                    : failure(row, invoice.getInvoiceNo(), "Invoice number already exists");
+        }
+
+        return report(List.of(results));
+    }
+
+    // Import a CSV upload with a header row naming the columns invoiceNo,depotId,date,phone,address,amount
+    public ImportReport importCsv(MultipartFile file) throws IOException {
+        List<InvoiceRequest> requests = new ArrayList<>();
+        List<String> parseErrors = new ArrayList<>();
+
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(file.getInputStream(), StandardCharsets.UTF_8))) {
+            String headerLine = reader.readLine();
+            if (headerLine == null) {
+                throw new RuntimeException("CSV file is empty");
+            }
+
+            Map<String, Integer> columnIndex = new HashMap<>();
+            List<String> header = parseCsvLine(headerLine.replace("\uFEFF", ""));
+            for (int i = 0; i < header.size(); i++) {
+                columnIndex.put(header.get(i).trim().toLowerCase(), i);
+            }
+            for (String column : CSV_COLUMNS) {
+                if (!columnIndex.containsKey(column.toLowerCase())) {
+                    throw new RuntimeException("CSV header is missing column: " + column);
+                }
+            }
+
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                checkSize(requests.size() + 1);
+                List<String> values = parseCsvLine(line);
+                InvoiceRequest request = new InvoiceRequest();
+                String error = null;
+                try {
+                    request.setInvoiceNo(column(values, columnIndex, "invoiceNo"));
+                    request.setDepotId(column(values, columnIndex, "depotId"));
+                    request.setPhone(column(values, columnIndex, "phone"));
+                    request.setAddress(column(values, columnIndex, "address"));
+                    String date = column(values, columnIndex, "date");
+                    request.setDate(date != null ? LocalDate.parse(date) : null);
+                    String amount = column(values, columnIndex, "amount");
+                    request.setAmount(amount != null ? Long.parseLong(amount) : null);
+                } catch (RuntimeException e) {
+                    error = "Could not parse row: " + e.getMessage();
+                }
+                requests.add(request);
+                parseErrors.add(error);
+            }
+        }
+
+        // Rows that failed to parse are reported as-is; the rest go through the normal import
+        List<InvoiceRequest> parsed = new ArrayList<>();
+        List<Integer> parsedRows = new ArrayList<>();
+        for (int i = 0; i < requests.size(); i++) {
+            if (parseErrors.get(i) == null) {
+                parsed.add(requests.get(i));
+                parsedRows.add(i);
+            }
+        }
+        ImportReport parsedReport = importInvoices(parsed);
+
+        List<ImportRowResult> results = new ArrayList<>();
+        int next = 0;
+        for (int i = 0; i < requests.size(); i++) {
+            if (parseErrors.get(i) != null) {
+                results.add(failure(i, requests.get(i).getInvoiceNo(), parseErrors.get(i)));
+            } else {
+                ImportRowResult result = parsedReport.getRows().get(next++);
+                result.setRow(parsedRows.get(next - 1) + 1);
+                results.add(result);
+            }
+        }
+        return report(results);
+    }
+
+    private void checkSize(int rows) {
+        if (rows > maxRows) {
+            throw new RuntimeException("An import can have at most " + maxRows + " rows, split it into smaller batches");
+        }
+    }
+
+    // A null entry in the JSON array is reported as a failed row
+    private String validate(InvoiceRequest request) {
+        if (request == null) {
+            return "Row is empty";
+        }
+        if (request.getInvoiceNo() == null || request.getInvoiceNo().isBlank()) {
+            return "Invoice number is required";
+        }
+        if (request.getDepotId() == null || request.getDepotId().isBlank()) {
+            return "Depot is required";
+        }
+        if (request.getDate() == null) {
+            return "Date is required";
+        }
+        if (request.getAmount() == null || request.getAmount() <= 0) {
+            return "Amount must be positive";
+        }
+        return null;
+    }
+
+    private ImportRowResult failure(int index, String invoiceNo, String message) {
+        return new ImportRowResult(index + 1, invoiceNo, false, message, null);
+    }
+
+    private ImportReport report(List<ImportRowResult> results) {
+        int imported = 0;
+        for (ImportRowResult result : results) {
+            if (result.isSuccess()) {
+                imported++;
+            }
+        }
+        return new ImportReport(results.size(), imported, results.size() - imported, results);
+    }
+
+    private String column(List<String> values, Map<String, Integer> columnIndex, String name) {
+        int index = columnIndex.get(name.toLowerCase());
+        if (index >= values.size()) {
+            return null;
+        }
+        String value = values.get(index).trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    // Split one CSV line, honouring double-quoted fields with "" escapes
+    private List<String> parseCsvLine(String line) {
+        List<String> values = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    current.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    current.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        values.add(current.toString());
+        return values;
+    }
+}
@@ -0,0 +1,177 @@
+package com.invoicescoring.service;
+
+import com.invoicescoring.repository.InvoiceRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+// In-memory Bloom filter over every stored invoice number. "No" is definite and needs no database
+// access; "maybe" falls back to an exists query, and the unique index on invoiceNo stays the final guard.
+// Bits can't be removed, so deleted or renamed numbers linger as false positives until the next rebuild.
+@Service
+public class InvoiceNumberFilter {
+
+    @Autowired
+    private InvoiceRepository invoiceRepository;
+
+    @Autowired
+    @Qualifier("invoiceNoFilterExecutor")
+    private AsyncTaskExecutor invoiceNoFilterExecutor;
+
+    @Value("${invoice-no-filter.expected-insertions:1000000}")
+    private long expectedInsertions;
+
+    @Value("${invoice-no-filter.false-positive-rate:0.01}")
+    private double falsePositiveRate;
+
+    // null until the first build finishes; until then every check goes to the database
+    private volatile Bits current;
+
+    // Set while a rebuild streams the collection, so writes made meanwhile land in both filters
+    private volatile Bits building;
+
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+
+    // false means the number is definitely not stored
+    public boolean mightContain(String invoiceNo) {
+        Bits bits = current;
+        return bits == null || bits.mightContain(invoiceNo);
+    }
+
+    // Record a newly stored invoice number
+    public void add(String invoiceNo) {
+        Bits next = building;
+        if (next != null) {
+            next.add(invoiceNo);
+        }
+        Bits bits = current;
+        if (bits != null) {
+            bits.add(invoiceNo);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        rebuild();
+    }
+
+    // Periodic rebuild drops numbers that no longer exist and resizes for growth. It runs on its own
+    // executor: the stream over every invoice number would hold the shared scheduler thread.
+    @Scheduled(initialDelayString = "${invoice-no-filter.rebuild-interval-ms:3600000}",
+            fixedDelayString = "${invoice-no-filter.rebuild-interval-ms:3600000}")
+    public void scheduleRebuild() {
+        invoiceNoFilterExecutor.execute(this::rebuild);
+    }
+
+    public void rebuild() {
+        rebuildLock.lock();
+        try {
+            rebuildLocked();
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    private void rebuildLocked() {
+        long start = System.currentTimeMillis();
+        try {
+            // Leave room for twice the current count so the error rate holds until the next rebuild
+            long capacity = Math.max(expectedInsertions, invoiceRepository.count() * 2);
+            Bits next = new Bits(capacity, falsePositiveRate);
+            building = next;
+
+            long added = 0;
+            try (Stream<String> numbers = invoiceRepository.streamInvoiceNos()) {
+                for (String invoiceNo : (Iterable<String>) numbers::iterator) {
+                    next.add(invoiceNo);
+                    added++;
+                }
+            }
+
+            current = next;
+            System.out.println("Invoice number filter built: " + added + " numbers, " + next.bitCount
+                    + " bits, " + next.hashCount + " hashes in " + (System.currentTimeMillis() - start) + " ms");
+        } catch (RuntimeException e) {
+            // Keep serving the previous filter (or the database) rather than failing the caller
+            System.err.println("Invoice number filter rebuild failed: " + e.getMessage());
+        } finally {
+            building = null;
+        }
+    }
+
+    public long getBitCount() {
+        Bits bits = current;
+        return bits != null ? bits.bitCount : 0;
+    }
+
+    public boolean isReady() {
+        return current != null;
+    }
+
+    private static final class Bits {
+        private final AtomicLongArray words;
+        private final long bitCount;
+        private final int hashCount;
+
+        Bits(long expected, double falsePositiveRate) {
+            // Standard sizing: m = -n ln p / (ln 2)^2, k = m/n ln 2
+            long bits = (long) Math.ceil(-expected * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+            int wordCount = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(1, (bits + 63) >>> 6));
+            this.words = new AtomicLongArray(wordCount);
+            this.bitCount = (long) wordCount << 6;
+            this.hashCount = Math.max(1, (int) Math.round((double) bitCount / expected * Math.log(2)));
+        }
+
+        void add(String key) {
+            long hash = hash64(key);
+            long h1 = hash;
+            long h2 = Long.rotateLeft(hash, 32) | 1;
+            for (int i = 0; i < hashCount; i++) {
+                long bit = Long.remainderUnsigned(h1 + i * h2, bitCount);
+                int word = (int) (bit >>> 6);
+                long mask = 1L << bit;
+                long value = words.get(word);
+                while ((value & mask) == 0 && !words.compareAndSet(word, value, value | mask)) {
+                    value = words.get(word);
+                }
+            }
+        }
+
+        boolean mightContain(String key) {
+            long hash = hash64(key);
+            long h1 = hash;
+            long h2 = Long.rotateLeft(hash, 32) | 1;
+            for (int i = 0; i < hashCount; i++) {
+                long bit = Long.remainderUnsigned(h1 + i * h2, bitCount);
+                if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        // FNV-1a over the UTF-8 bytes, finished with the murmur3 mixer for better bit spread
+        private static long hash64(String key) {
+            long h = 0xcbf29ce484222325L;
+            for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+                h ^= b & 0xff;
+                h *= 0x100000001b3L;
+            }
+            h ^= h >>> 33;
+            h *= 0xff51afd7ed558ccdL;
+            h ^= h >>> 33;
+            h *= 0xc4ceb9fe1a85ec53L;
+            h ^= h >>> 33;
+            return h;
+        }
+    }
+}
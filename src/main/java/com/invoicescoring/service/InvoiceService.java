@@ -1,16 +1,36 @@
 package com.invoicescoring.service;
 
+import com.invoicescoring.dto.InvoicePage;
 import com.invoicescoring.dto.InvoiceRequest;
+import com.invoicescoring.dto.InvoiceSummary;
+import com.invoicescoring.dto.InvoiceTotals;
+import com.invoicescoring.dto.MonthlyStats;
 import com.invoicescoring.model.Invoice;
+import com.invoicescoring.model.MonthlyAggregate;
 import com.invoicescoring.repository.InvoiceRepository;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
 
 @Service
 public class InvoiceService {
@@ -19,55 +39,239 @@ public class InvoiceService {
     private InvoiceRepository invoiceRepository;
 
     @Autowired
-    private ScoreCalculationService scoreCalculationService;
+    private ScoringEngine scoringEngine;
 
-    // Check if invoice number already exists
+    @Autowired
+    private MonthlyAggregateService monthlyAggregateService;
+
+    @Autowired
+    private GlobalCounterService globalCounterService;
+
+    @Autowired
+    private DashboardSnapshotService dashboardSnapshotService;
+
+    @Autowired
+    private DepotLockRegistry depotLockRegistry;
+
+    @Autowired
+    private RescoringQueueService rescoringQueueService;
+
+    @Autowired
+    private ServiceMetrics serviceMetrics;
+
+    @Autowired
+    private InvoiceNumberFilter invoiceNumberFilter;
+
+    @Autowired
+    private LiveUpdateService liveUpdateService;
+
+    // Check if invoice number already exists. The filter answers most "no"s without a query;
+    // the unique index still rejects a racing duplicate on insert.
     public boolean invoiceNoExists(String invoiceNo) {
-        return invoiceRepository.findByInvoiceNo(invoiceNo).isPresent();
+        if (!invoiceNumberFilter.mightContain(invoiceNo)) {
+            serviceMetrics.recordInvoiceNoCheck(true);
+            return false;
+        }
+        serviceMetrics.recordInvoiceNoCheck(false);
+        return invoiceRepository.existsByInvoiceNo(invoiceNo);
     }
 
     // Create new invoice with MONTHLY score calculation
     @Transactional
     public Invoice createInvoice(InvoiceRequest request) {
-        if (invoiceNoExists(request.getInvoiceNo())) {
-            throw new RuntimeException("Invoice number already exists");
+        Timer.Sample sample = serviceMetrics.start();
+        try {
+            if (invoiceNoExists(request.getInvoiceNo())) {
+                throw new RuntimeException("Invoice number already exists");
+            }
+
+            Invoice invoice = new Invoice();
+            invoice.setInvoiceNo(request.getInvoiceNo());
+            invoice.setDepotId(request.getDepotId());
+            invoice.setDate(request.getDate());
+            invoice.setPhone(request.getPhone());
+            invoice.setAddress(request.getAddress());
+            invoice.setAmount(request.getAmount());
+
+            // One writer per depot-month at a time, so the month's delta, this invoice's score and any
+            // rescoring of the month all see the same totals
+            List<ReentrantLock> locks = depotLockRegistry.lockMonths(request.getDepotId(),
+                    List.of(YearMonth.from(request.getDate())));
+            try {
+                // Add the invoice to its month's running totals and score it against the new total
+                MonthChange change = applyMonthChange(request.getDepotId(), YearMonth.from(request.getDate()),
+                        request.getAmount(), 1);
+                applyMonthlyScore(invoice, change);
+
+                Invoice savedInvoice;
+                try {
+                    savedInvoice = invoiceRepository.save(invoice);
+                } catch (RuntimeException e) {
+                    // There's no transaction manager, so take the invoice back out of the month's totals
+                    revertMonthChange(change);
+                    throw saveFailure(e);
+                }
+                invoiceNumberFilter.add(savedInvoice.getInvoiceNo());
+                globalCounterService.applyInvoiceDelta(request.getAmount(), 1);
+                dashboardSnapshotService.invalidate();
+                liveUpdateService.invoiceSaved("created", savedInvoice);
+                liveUpdateService.totalsChanged(request.getAmount(), 1);
+
+                // Other invoices of the month only need rewriting when the discount tier moved
+                finishMonthChange(change);
+
+                return savedInvoice;
+            } finally {
+                StripedLocks.unlockAll(locks);
+            }
+        } finally {
+            sample.stop(serviceMetrics.invoiceCreate());
         }
+    }
 
-        Invoice invoice = new Invoice();
-        invoice.setInvoiceNo(request.getInvoiceNo());
-        invoice.setDepotId(request.getDepotId());
-        invoice.setDate(request.getDate());
-        invoice.setPhone(request.getPhone());
-        invoice.setAddress(request.getAddress());
-        invoice.setAmount(request.getAmount());
+    // Insert a batch of validated invoices and rescore each affected depot-month once.
+    // Returns the invoices that were inserted; the rest collided on invoice number.
+    public List<Invoice> insertBatch(List<Invoice> invoices) {
+        Timer.Sample sample = serviceMetrics.start();
+        try {
+            // Lock every depot-month the batch touches up front (lockAll orders them to avoid deadlocks)
+            Set<String> monthKeys = new HashSet<>();
+            for (Invoice invoice : invoices) {
+                monthKeys.add(MonthlyAggregate.idFor(invoice.getDepotId(), YearMonth.from(invoice.getDate())));
+            }
+            List<ReentrantLock> locks = depotLockRegistry.lockMonthKeys(monthKeys);
+            try {
+                return insertBatchLocked(invoices);
+            } finally {
+                StripedLocks.unlockAll(locks);
+            }
+        } finally {
+            sample.stop(serviceMetrics.invoiceBatch());
+        }
+    }
 
-        // TEMPORARY: Calculate individual invoice score
-        Integer tempScore = scoreCalculationService.calculateScore(request.getAmount());
-        Double tempDiscount = scoreCalculationService.calculateDiscount(tempScore);
-        Long tempTotalAfterDiscount = scoreCalculationService.calculateTotalAfterDiscount(
-                request.getAmount(), tempDiscount);
+    private List<Invoice> insertBatchLocked(List<Invoice> invoices) {
+        if (invoices.isEmpty()) {
+            return invoices;
+        }
 
-        invoice.setScore(tempScore);
-        invoice.setDiscount(tempDiscount);
-        invoice.setTotalAfterDiscount(tempTotalAfterDiscount);
+        // Group by depot-month so each month's aggregate is touched once
+        Map<String, List<Invoice>> byMonth = new LinkedHashMap<>();
+        for (Invoice invoice : invoices) {
+            String key = MonthlyAggregate.idFor(invoice.getDepotId(), YearMonth.from(invoice.getDate()));
+            byMonth.computeIfAbsent(key, k -> new ArrayList<>()).add(invoice);
+        }
 
-        // Save the invoice first
-        Invoice savedInvoice = invoiceRepository.save(invoice);
+        // Count the batch into its months BEFORE inserting: a month seeded from the stored invoices
+        // must not already see these rows, or they'd be counted twice. Scoring here also means the
+        // rows go in with their scores instead of needing a second write.
+        Map<String, MonthChange> changes = new LinkedHashMap<>();
+        for (Map.Entry<String, List<Invoice>> entry : byMonth.entrySet()) {
+            List<Invoice> monthInvoices = entry.getValue();
+            Invoice first = monthInvoices.get(0);
+            long monthAmount = 0;
+            for (Invoice invoice : monthInvoices) {
+                monthAmount += invoice.getAmount();
+            }
 
-        // RECALCULATE MONTHLY SCORES for this depot and month
-        int month = request.getDate().getMonthValue();
-        int year = request.getDate().getYear();
-        recalculateMonthlyScores(request.getDepotId(), month, year);
+            MonthChange change = applyMonthChange(first.getDepotId(), YearMonth.from(first.getDate()),
+                    monthAmount, monthInvoices.size());
+            for (Invoice invoice : monthInvoices) {
+                applyMonthlyScore(invoice, change);
+            }
+            changes.put(entry.getKey(), change);
+        }
 
-        // Check if this is first order of calculation month (trigger calculation)
-        checkAndTriggerQuarterCalculation(request.getDepotId(), request.getDate());
+        List<Invoice> inserted;
+        try {
+            inserted = invoiceRepository.insertUnordered(invoices);
+        } catch (RuntimeException e) {
+            // Nothing is known to be stored, so take the whole batch back out of the totals
+            for (MonthChange change : changes.values()) {
+                revertMonthChange(change);
+            }
+            throw e;
+        }
 
-        return savedInvoice;
+        // Rows that collided on invoice number were counted but not stored
+        Map<String, long[]> insertedByMonth = new HashMap<>();
+        long batchAmount = 0;
+        for (Invoice invoice : inserted) {
+            invoiceNumberFilter.add(invoice.getInvoiceNo());
+            long[] sums = insertedByMonth.computeIfAbsent(
+                    MonthlyAggregate.idFor(invoice.getDepotId(), YearMonth.from(invoice.getDate())), k -> new long[2]);
+            sums[0] += invoice.getAmount();
+            sums[1]++;
+            batchAmount += invoice.getAmount();
+        }
+        Iterator<Map.Entry<String, MonthChange>> pending = changes.entrySet().iterator();
+        while (pending.hasNext()) {
+            Map.Entry<String, MonthChange> entry = pending.next();
+            MonthChange change = entry.getValue();
+            long[] sums = insertedByMonth.getOrDefault(entry.getKey(), new long[2]);
+            if (sums[1] == 0) {
+                revertMonthChange(change);
+                pending.remove();
+            } else if (sums[1] != change.countDelta) {
+                shrinkMonthChange(change, change.amountDelta - sums[0], change.countDelta - sums[1]);
+            }
+        }
+        if (inserted.isEmpty()) {
+            return inserted;
+        }
+
+        globalCounterService.applyInvoiceDelta(batchAmount, inserted.size());
+        dashboardSnapshotService.invalidate();
+        Map<String, Integer> insertedPerDepot = new LinkedHashMap<>();
+        for (Invoice invoice : inserted) {
+            insertedPerDepot.merge(invoice.getDepotId(), 1, Integer::sum);
+        }
+        insertedPerDepot.forEach(liveUpdateService::invoicesImported);
+        liveUpdateService.totalsChanged(batchAmount, inserted.size());
+
+        for (MonthChange change : changes.values()) {
+            finishMonthChange(change);
+        }
+
+        return inserted;
+    }
+
+    // Get all invoices for depot (list columns only)
+    public List<InvoiceSummary> getDepotInvoices(String depotId) {
+        return invoiceRepository.findDepotSummaries(depotId);
+    }
+
+    // One keyset page of a depot's invoices; the cursor is opaque to clients
+    public InvoicePage<InvoiceSummary> getDepotInvoicePage(String depotId, String cursor, int limit) {
+        LocalDate afterDate = null;
+        String afterId = null;
+        if (cursor != null && !cursor.isEmpty()) {
+            try {
+                String[] key = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|", 2);
+                afterDate = LocalDate.parse(key[0]);
+                afterId = key[1];
+            } catch (RuntimeException e) {
+                throw new RuntimeException("Invalid cursor");
+            }
+        }
+
+        // Fetch one extra row to know whether another page exists
+        List<InvoiceSummary> rows = invoiceRepository.findDepotPage(depotId, afterDate, afterId, limit + 1);
+        boolean hasMore = rows.size() > limit;
+        List<InvoiceSummary> items = hasMore ? rows.subList(0, limit) : rows;
+
+        String nextCursor = null;
+        if (hasMore) {
+            InvoiceSummary last = items.get(items.size() - 1);
+            nextCursor = Base64.getUrlEncoder().withoutPadding().encodeToString(
+                    (last.getDate() + "|" + last.getId()).getBytes(StandardCharsets.UTF_8));
+        }
+        return new InvoicePage<>(items, nextCursor, hasMore);
     }
 
-    // Get all invoices for depot
-    public List<Invoice> getDepotInvoices(String depotId) {
-        return invoiceRepository.findByDepotIdOrderByDateDesc(depotId);
+    // Stream a depot's invoices straight off the Mongo cursor; the caller must close it
+    public Stream<Invoice> streamDepotInvoices(String depotId) {
+        return invoiceRepository.streamDepotInvoices(depotId);
     }
 
     // Get invoice by ID
@@ -78,12 +282,37 @@ public class InvoiceService {
     // Update invoice with MONTHLY score recalculation
     @Transactional
     public Invoice updateInvoice(String invoiceId, InvoiceRequest request) {
-        Invoice invoice = invoiceRepository.findById(invoiceId)
-                .orElseThrow(() -> new RuntimeException("Invoice not found"));
+        Timer.Sample sample = serviceMetrics.start();
+        try {
+            YearMonth newMonth = YearMonth.from(request.getDate());
+            while (true) {
+                Invoice current = invoiceRepository.findById(invoiceId)
+                        .orElseThrow(() -> new RuntimeException("Invoice not found"));
+                YearMonth oldMonth = YearMonth.from(current.getDate());
+
+                // Both months change, so lock both; re-read under the lock in case the invoice moved meanwhile
+                List<ReentrantLock> locks = depotLockRegistry.lockMonths(current.getDepotId(),
+                        List.of(oldMonth, newMonth));
+                try {
+                    Invoice invoice = invoiceRepository.findById(invoiceId)
+                            .orElseThrow(() -> new RuntimeException("Invoice not found"));
+                    if (YearMonth.from(invoice.getDate()).equals(oldMonth)) {
+                        return updateInvoiceLocked(invoice, request);
+                    }
+                } finally {
+                    StripedLocks.unlockAll(locks);
+                }
+            }
+        } finally {
+            sample.stop(serviceMetrics.invoiceUpdate());
+        }
+    }
 
-        // Store old month for recalculation
-        int oldMonth = invoice.getDate().getMonthValue();
-        int oldYear = invoice.getDate().getYear();
+    private Invoice updateInvoiceLocked(Invoice invoice, InvoiceRequest request) {
+        // Store old month and amount for the aggregate deltas
+        YearMonth oldMonth = YearMonth.from(invoice.getDate());
+        YearMonth newMonth = YearMonth.from(request.getDate());
+        long oldAmount = invoice.getAmount();
 
         invoice.setInvoiceNo(request.getInvoiceNo());
         invoice.setDate(request.getDate());
@@ -91,60 +320,220 @@ public class InvoiceService {
         invoice.setAddress(request.getAddress());
         invoice.setAmount(request.getAmount());
 
-        // TEMPORARY: Calculate individual score
-        Integer tempScore = scoreCalculationService.calculateScore(request.getAmount());
-        Double tempDiscount = scoreCalculationService.calculateDiscount(tempScore);
-        Long tempTotalAfterDiscount = scoreCalculationService.calculateTotalAfterDiscount(
-                request.getAmount(), tempDiscount);
+        MonthChange newMonthChange;
+        MonthChange oldMonthChange = null;
+        if (oldMonth.equals(newMonth)) {
+            newMonthChange = applyMonthChange(invoice.getDepotId(), newMonth, request.getAmount() - oldAmount, 0);
+        } else {
+            newMonthChange = applyMonthChange(invoice.getDepotId(), newMonth, request.getAmount(), 1);
+            oldMonthChange = applyMonthChange(invoice.getDepotId(), oldMonth, -oldAmount, -1);
+        }
+        applyMonthlyScore(invoice, newMonthChange);
+
+        // Save the invoice; on failure undo the month deltas (e.g. the new number is already taken)
+        Invoice savedInvoice;
+        try {
+            savedInvoice = invoiceRepository.save(invoice);
+        } catch (RuntimeException e) {
+            revertMonthChange(newMonthChange);
+            if (oldMonthChange != null) {
+                revertMonthChange(oldMonthChange);
+            }
+            throw saveFailure(e);
+        }
+        invoiceNumberFilter.add(savedInvoice.getInvoiceNo());
+        globalCounterService.applyInvoiceDelta(request.getAmount() - oldAmount, 0);
+        dashboardSnapshotService.invalidate();
+        liveUpdateService.invoiceSaved("updated", savedInvoice);
+        liveUpdateService.totalsChanged(request.getAmount() - oldAmount, 0);
+
+        // Rescore the OLD month (if month changed) and the NEW month when their tiers moved
+        if (oldMonthChange != null) {
+            finishMonthChange(oldMonthChange);
+        }
+        finishMonthChange(newMonthChange);
 
-        invoice.setScore(tempScore);
-        invoice.setDiscount(tempDiscount);
-        invoice.setTotalAfterDiscount(tempTotalAfterDiscount);
+        return savedInvoice;
+    }
 
-        // Save the invoice
-        Invoice savedInvoice = invoiceRepository.save(invoice);
+    // Delete invoice with MONTHLY score recalculation
+    @Transactional
+    public void deleteInvoice(String invoiceId) {
+        Timer.Sample sample = serviceMetrics.start();
+        try {
+            while (true) {
+                Invoice current = invoiceRepository.findById(invoiceId)
+                        .orElseThrow(() -> new RuntimeException("Invoice not found"));
+                YearMonth month = YearMonth.from(current.getDate());
+
+                // Re-read under the lock in case a concurrent update moved it to another month
+                List<ReentrantLock> locks = depotLockRegistry.lockMonths(current.getDepotId(), List.of(month));
+                try {
+                    Invoice invoice = invoiceRepository.findById(invoiceId)
+                            .orElseThrow(() -> new RuntimeException("Invoice not found"));
+                    if (YearMonth.from(invoice.getDate()).equals(month)) {
+                        deleteInvoiceLocked(invoice);
+                        return;
+                    }
+                } finally {
+                    StripedLocks.unlockAll(locks);
+                }
+            }
+        } finally {
+            sample.stop(serviceMetrics.invoiceDelete());
+        }
+    }
 
-        // Recalculate scores for OLD month (if month changed)
-        int newMonth = request.getDate().getMonthValue();
-        int newYear = request.getDate().getYear();
+    private void deleteInvoiceLocked(Invoice invoice) {
+        MonthChange change = applyMonthChange(invoice.getDepotId(), YearMonth.from(invoice.getDate()),
+                -invoice.getAmount(), -1);
 
-        if (oldMonth != newMonth || oldYear != newYear) {
-            recalculateMonthlyScores(invoice.getDepotId(), oldMonth, oldYear);
+        // Delete the invoice; on failure give the month its amount back
+        try {
+            invoiceRepository.deleteById(invoice.getId());
+        } catch (RuntimeException e) {
+            revertMonthChange(change);
+            throw e;
         }
+        globalCounterService.applyInvoiceDelta(-invoice.getAmount(), -1);
+        dashboardSnapshotService.invalidate();
+        liveUpdateService.invoiceDeleted(invoice);
+        liveUpdateService.totalsChanged(-invoice.getAmount(), -1);
 
-        // Recalculate scores for NEW month
-        recalculateMonthlyScores(invoice.getDepotId(), newMonth, newYear);
+        // Rescore the remaining invoices only if the tier moved
+        finishMonthChange(change);
+    }
 
-        return savedInvoice;
+    // Apply an amount/count delta to the depot-month aggregate and work out the month's new score
+    private MonthChange applyMonthChange(String depotId, YearMonth month, long amountDelta, long countDelta) {
+        MonthlyAggregate previous = monthlyAggregateService.applyDelta(depotId, month, amountDelta, countDelta);
+
+        MonthChange change = new MonthChange();
+        change.depotId = depotId;
+        change.month = month;
+        change.amountDelta = amountDelta;
+        change.countDelta = countDelta;
+        change.totalAmount = previous.getTotalAmount() + amountDelta;
+        change.invoiceCount = previous.getInvoiceCount() + countDelta;
+        change.previousScore = previous.getScore();
+        change.previousDiscount = previous.getDiscount();
+        change.table = scoringEngine.tableFor(depotId);
+        scoreMonthChange(change);
+        return change;
     }
 
-    // Delete invoice with MONTHLY score recalculation
-    @Transactional
-    public void deleteInvoice(String invoiceId) {
-        Invoice invoice = invoiceRepository.findById(invoiceId)
-                .orElseThrow(() -> new RuntimeException("Invoice not found"));
+    private void scoreMonthChange(MonthChange change) {
+        change.score = change.table.score(Math.max(change.totalAmount, 0L));
+        change.discountBps = change.table.discountBps(change.score);
+        change.discount = TierTable.percent(change.discountBps);
+        change.scoreChanged = change.previousScore == null || change.previousScore != change.score;
+        change.tierChanged = change.previousDiscount == null || change.previousDiscount != change.discount;
+    }
+
+    // Take rows that were counted but never stored back out of a change. The stored rows were scored
+    // against the larger total, so the whole month is rewritten once the change finishes.
+    private void shrinkMonthChange(MonthChange change, long amount, long count) {
+        monthlyAggregateService.applyDelta(change.depotId, change.month, -amount, -count);
+        change.amountDelta -= amount;
+        change.countDelta -= count;
+        change.totalAmount -= amount;
+        change.invoiceCount -= count;
+        scoreMonthChange(change);
+        change.rescoreAll = true;
+    }
+
+    // Undo the totals of a change whose invoice write failed; its tier was never stored
+    private void revertMonthChange(MonthChange change) {
+        monthlyAggregateService.applyDelta(change.depotId, change.month, -change.amountDelta, -change.countDelta);
+    }
+
+    // A racing request can take the same invoice number between the check and the insert
+    private static RuntimeException saveFailure(RuntimeException e) {
+        if (e instanceof DuplicateKeyException) {
+            return new RuntimeException("Invoice number already exists");
+        }
+        return e;
+    }
+
+    // Persist the month's new score and rewrite its invoices if the discount tier changed or they were
+    // scored against a total that didn't hold
+    private void finishMonthChange(MonthChange change) {
+        if (change.scoreChanged || change.tierChanged) {
+            monthlyAggregateService.updateTier(change.depotId, change.month, change.score, change.discount);
+        }
+        liveUpdateService.monthChanged(change.depotId, change.month, change.totalAmount, change.invoiceCount,
+                change.score, change.discount);
+        if (change.tierChanged || change.rescoreAll) {
+            if (change.tierChanged) {
+                serviceMetrics.recordTierChange();
+            }
+            String depotId = change.depotId;
+            YearMonth month = change.month;
+            if (rescoringQueueService.isAsync()) {
+                // Write-behind: the caller gets its invoice back now, the month is rewritten shortly after
+                submitRescoring(depotId, month);
+            } else {
+                recalculateMonthlyScores(depotId, month.getMonthValue(), month.getYear());
+            }
+        }
+    }
 
-        String depotId = invoice.getDepotId();
-        int month = invoice.getDate().getMonthValue();
-        int year = invoice.getDate().getYear();
+    private void submitRescoring(String depotId, YearMonth month) {
+        rescoringQueueService.submit(depotId, month,
+                () -> recalculateMonthlyScores(depotId, month.getMonthValue(), month.getYear()));
+    }
 
-        // Delete the invoice
-        invoiceRepository.deleteById(invoiceId);
+    // Finish the write-behind rescorings that were still outstanding when the application last stopped
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumePendingRescoring() {
+        List<MonthlyAggregate> pending = monthlyAggregateService.findRescorePending();
+        for (MonthlyAggregate aggregate : pending) {
+            String depotId = aggregate.getDepotId();
+            YearMonth month = aggregate.getYearMonth();
+            List<ReentrantLock> locks = depotLockRegistry.lockMonths(depotId, List.of(month));
+            try {
+                if (rescoringQueueService.isAsync()) {
+                    submitRescoring(depotId, month);
+                } else {
+                    recalculateMonthlyScores(depotId, month.getMonthValue(), month.getYear());
+                    monthlyAggregateService.setRescorePending(depotId, month, false);
+                }
+            } finally {
+                StripedLocks.unlockAll(locks);
+            }
+        }
+        if (!pending.isEmpty()) {
+            System.out.println("[rescoring] Resumed " + pending.size() + " pending month rescorings");
+        }
+    }
 
-        // Recalculate monthly scores after deletion
-        recalculateMonthlyScores(depotId, month, year);
+    // Give an invoice its proportional share of the month's score and the month's discount
+    private void applyMonthlyScore(Invoice inv, MonthChange change) {
+        long amount = inv.getAmount();
+        long totalAfterDiscount = TierTable.afterDiscount(amount, change.discountBps);
+        inv.setScore(change.table.invoiceScore(amount, change.totalAmount, change.score));
+        inv.setDiscount(change.discount);
+        inv.setTotalAfterDiscount(totalAfterDiscount);
     }
 
     // RECALCULATE MONTHLY SCORES for a specific month
     private void recalculateMonthlyScores(String depotId, int month, int year) {
-        // Get all invoices for this depot in this specific month and year
-        LocalDate startDate = LocalDate.of(year, month, 1);
-        LocalDate endDate = startDate.withDayOfMonth(startDate.lengthOfMonth());
+        Timer.Sample sample = serviceMetrics.start();
+        try {
+            rescoreMonth(depotId, month, year);
+            liveUpdateService.monthRescored(depotId, YearMonth.of(year, month));
+        } finally {
+            sample.stop(serviceMetrics.monthRescore());
+        }
+    }
 
-        List<Invoice> monthInvoices = invoiceRepository.findByDepotIdAndDateBetween(
-                depotId, startDate, endDate);
+    private void rescoreMonth(String depotId, int month, int year) {
+        // Get all invoices for this depot in this specific month and year (scoring fields only)
+        List<Invoice> monthInvoices = invoiceRepository.findMonthInvoicesForScoring(depotId, YearMonth.of(year, month));
 
         if (!monthInvoices.isEmpty()) {
+            TierTable table = scoringEngine.tableFor(depotId);
+
             // Calculate MONTHLY TOTAL amount
             long monthlyTotalAmount = 0;
             for (Invoice inv : monthInvoices) {
@@ -152,98 +541,73 @@ public class InvoiceService {
             }
 
             // Calculate MONTHLY SCORE based on total amount
-            Integer monthlyScore = scoreCalculationService.calculateAccumulatedScore(monthlyTotalAmount);
-            Double monthlyDiscount = scoreCalculationService.calculateDiscount(monthlyScore);
-            Long monthlyTotalAfterDiscount = scoreCalculationService.calculateTotalAfterDiscount(
-                    monthlyTotalAmount, monthlyDiscount);
+            int monthlyScore = table.score(monthlyTotalAmount);
+            int discountBps = table.discountBps(monthlyScore);
+            double monthlyDiscount = TierTable.percent(discountBps);
 
-            // Distribute scores proportionally to invoices
+            // Distribute scores proportionally in memory on primitives; only rows that change get new
+            // (boxed) field values and go into the bulk write
+            List<Invoice> changed = new ArrayList<>();
             for (Invoice inv : monthInvoices) {
-                // Calculate this invoice's share of the score (proportional)
-                double percentage = (double) inv.getAmount() / monthlyTotalAmount;
-                int invoiceScore = (int) Math.round(monthlyScore * percentage);
-
-                // Ensure at least 1 score for invoices over 1,000,000
-                if (inv.getAmount() >= 1_000_000L) {
-                    int directScore = (int) (inv.getAmount() / 1_000_000L);
-                    invoiceScore = Math.max(invoiceScore, directScore);
+                long amount = inv.getAmount();
+                int score = table.invoiceScore(amount, monthlyTotalAmount, monthlyScore);
+                long totalAfterDiscount = TierTable.afterDiscount(amount, discountBps);
+
+                if (inv.getScore() == null || inv.getScore() != score
+                        || inv.getDiscount() == null || inv.getDiscount() != monthlyDiscount
+                        || inv.getTotalAfterDiscount() == null || inv.getTotalAfterDiscount() != totalAfterDiscount) {
+                    inv.setScore(score);
+                    inv.setDiscount(monthlyDiscount);
+                    inv.setTotalAfterDiscount(totalAfterDiscount);
+                    changed.add(inv);
                 }
-
-                // Calculate invoice's total after discount
-                Long invoiceTotalAfterDiscount = scoreCalculationService.calculateTotalAfterDiscount(
-                        inv.getAmount(), monthlyDiscount);
-
-                // Update invoice
-                inv.setScore(invoiceScore);
-                inv.setDiscount(monthlyDiscount);
-                inv.setTotalAfterDiscount(invoiceTotalAfterDiscount);
-
-                invoiceRepository.save(inv);
             }
+
+            // One unordered bulk write instead of a save per invoice
+            invoiceRepository.bulkUpdateScores(changed);
+            serviceMetrics.recordRescoredRows(monthInvoices.size(), changed.size());
         }
     }
 
     // Get invoices for specific month and year
-    public List<Invoice> getInvoicesForMonth(String depotId, int month, int year) {
-        LocalDate startDate = LocalDate.of(year, month, 1);
-        LocalDate endDate = startDate.withDayOfMonth(startDate.lengthOfMonth());
-        return invoiceRepository.findByDepotIdAndDateBetween(depotId, startDate, endDate);
+    public List<InvoiceSummary> getInvoicesForMonth(String depotId, int month, int year) {
+        return invoiceRepository.findMonthSummaries(depotId, YearMonth.of(year, month));
+    }
+
+    // Get invoices for a whole calendar year, newest first
+    public List<InvoiceSummary> getInvoicesForYear(String depotId, int year) {
+        return invoiceRepository.findSummariesInRange(depotId, LocalDate.of(year, 1, 1), LocalDate.of(year + 1, 1, 1));
     }
 
     // Get monthly total amount
     public Long getMonthlyTotalAmount(String depotId, int month, int year) {
-        List<Invoice> monthInvoices = getInvoicesForMonth(depotId, month, year);
-        return monthInvoices.stream()
-                .mapToLong(Invoice::getAmount)
-                .sum();
+        return invoiceRepository.summarizeMonth(depotId, YearMonth.of(year, month)).getTotalAmount();
     }
 
     // Get monthly total score
     public Integer getMonthlyTotalScore(String depotId, int month, int year) {
         Long monthlyTotal = getMonthlyTotalAmount(depotId, month, year);
-        return scoreCalculationService.calculateAccumulatedScore(monthlyTotal);
+        return scoringEngine.tableFor(depotId).score(monthlyTotal);
     }
 
     // Get invoice count for specific month
     public long getMonthInvoiceCount(String depotId, int month, int year) {
-        List<Invoice> monthInvoices = getInvoicesForMonth(depotId, month, year);
-        return monthInvoices.size();
-    }
-
-    // Check if calculation should be triggered
-    private void checkAndTriggerQuarterCalculation(String depotId, LocalDate currentDate) {
-        int month = currentDate.getMonthValue();
-        int year = currentDate.getYear();
-
-        // Only trigger in calculation months: April(4), July(7), October(10),
-        // January(1)
-        if (month == 4 || month == 7 || month == 10 || month == 1) {
-            // Check if this is the first invoice of the calculation month
-            List<Invoice> monthInvoices = getInvoicesForMonth(depotId, month, year);
-
-            // If this is the first invoice of the calculation month
-            if (monthInvoices.size() == 1) { // Current invoice + 0 existing = first invoice
-                YearMonth quarterToCalculate;
-
-                if (month == 4) {
-                    quarterToCalculate = YearMonth.of(year, 1); // Q1: Jan-Mar
-                } else if (month == 7) {
-                    quarterToCalculate = YearMonth.of(year, 4); // Q2: Apr-Jun
-                } else if (month == 10) {
-                    quarterToCalculate = YearMonth.of(year, 7); // Q3: Jul-Sep
-                } else { // month == 1 (January)
-                    quarterToCalculate = YearMonth.of(year - 1, 10); // Q4: Oct-Dec of previous year
-                }
+        return invoiceRepository.countMonthInvoices(depotId, YearMonth.of(year, month));
+    }
 
-                // Perform the calculation
-                scoreCalculationService.performQuarterCalculation(depotId, quarterToCalculate);
-            }
-        }
+    // Totals per calendar month over the depot's history
+    public List<MonthlyStats> getMonthlyStats(String depotId) {
+        return invoiceRepository.monthlyStats(depotId);
+    }
+
+    // Totals for a whole calendar year
+    public InvoiceTotals getYearTotals(String depotId, int year) {
+        return invoiceRepository.totalsInRange(depotId, LocalDate.of(year, 1, 1), LocalDate.of(year + 1, 1, 1));
     }
 
-    // Get invoices by date range for depot
-    public List<Invoice> getDepotInvoicesByDateRange(String depotId, LocalDate startDate, LocalDate endDate) {
-        return invoiceRepository.findByDepotIdAndDateBetween(depotId, startDate, endDate);
+    // Get invoices by date range for depot (both dates included, list columns only)
+    public List<InvoiceSummary> getDepotInvoicesByDateRange(String depotId, LocalDate startDate, LocalDate endDate) {
+        return invoiceRepository.findSummariesInRange(depotId, startDate, endDate.plusDays(1));
     }
 
     // Get total invoices for a depot
@@ -273,11 +637,30 @@ public class InvoiceService {
         stats.setQuarter(quarterStart);
         stats.setTotalAmount(totalAmount);
         stats.setInvoiceCount(invoiceCount);
-        stats.setTotalScore(scoreCalculationService.calculateAccumulatedScore(totalAmount));
+        stats.setTotalScore(scoringEngine.tableFor(depotId).score(totalAmount));
 
         return stats;
     }
 
+    // Outcome of applying one mutation to a depot-month aggregate
+    private static class MonthChange {
+        private String depotId;
+        private YearMonth month;
+        private long amountDelta;
+        private long countDelta;
+        private long totalAmount;
+        private long invoiceCount;
+        private Integer previousScore;
+        private Double previousDiscount;
+        private TierTable table;
+        private int score;
+        private int discountBps;
+        private double discount;
+        private boolean scoreChanged;
+        private boolean tierChanged;
+        private boolean rescoreAll;
+    }
+
     // Inner class for quarterly stats
     public static class QuarterlyStats {
         private YearMonth quarter;
@@ -0,0 +1,286 @@
+package com.invoicescoring.service;
+
+import com.invoicescoring.model.Depot;
+import com.invoicescoring.model.Invoice;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import java.io.IOException;
+import java.time.YearMonth;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Pushes changes to open dashboard and depot pages over Server-Sent Events, so they don't poll.
+// Publishing never blocks a writer: each subscriber has its own bounded buffer drained by the
+// liveUpdateExecutor. A subscriber that falls behind loses its buffer and gets a "resync" event,
+// telling the page to reload once over REST.
+@Service
+public class LiveUpdateService {
+
+    public static final String DASHBOARD = "dashboard";
+
+    @Autowired
+    @Qualifier("liveUpdateExecutor")
+    private AsyncTaskExecutor liveUpdateExecutor;
+
+    @Value("${live-updates.buffer-size:256}")
+    private int bufferSize;
+
+    @Value("${live-updates.max-subscribers:1000}")
+    private int maxSubscribers;
+
+    @Value("${live-updates.timeout-ms:1800000}")
+    private long timeoutMs;
+
+    // topic -> subscribers; topics are "dashboard" and "depot:<id>"
+    private final Map<String, Set<Subscriber>> topics = new ConcurrentHashMap<>();
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+    private final AtomicInteger resyncCount = new AtomicInteger();
+
+    public SseEmitter subscribeDashboard() {
+        return subscribe(DASHBOARD);
+    }
+
+    public SseEmitter subscribeDepot(String depotId) {
+        return subscribe(depotTopic(depotId));
+    }
+
+    // A depot's invoice was created or updated
+    public void invoiceSaved(String action, Invoice invoice) {
+        Map<String, Object> data = new HashMap<>();
+        data.put("action", action);
+        data.put("depotId", invoice.getDepotId());
+        data.put("invoice", invoice);
+        publish(depotTopic(invoice.getDepotId()), "invoice", data);
+    }
+
+    public void invoiceDeleted(Invoice invoice) {
+        Map<String, Object> data = new HashMap<>();
+        data.put("action", "deleted");
+        data.put("depotId", invoice.getDepotId());
+        data.put("invoiceId", invoice.getId());
+        data.put("date", invoice.getDate());
+        publish(depotTopic(invoice.getDepotId()), "invoice", data);
+    }
+
+    // Many invoices at once (import); pages reload instead of receiving each row
+    public void invoicesImported(String depotId, int count) {
+        Map<String, Object> data = new HashMap<>();
+        data.put("depotId", depotId);
+        data.put("count", count);
+        publish(depotTopic(depotId), "imported", data);
+    }
+
+    // New running totals of a depot-month
+    public void monthChanged(String depotId, YearMonth month, long totalAmount, long invoiceCount,
+                             int score, double discount) {
+        Map<String, Object> data = new HashMap<>();
+        data.put("depotId", depotId);
+        data.put("year", month.getYear());
+        data.put("month", month.getMonthValue());
+        data.put("totalAmount", totalAmount);
+        data.put("invoiceCount", invoiceCount);
+        data.put("score", score);
+        data.put("discount", discount);
+        publish(depotTopic(depotId), "month", data);
+    }
+
+    // The month's discount tier moved and all of its invoices were rewritten with new scores
+    public void monthRescored(String depotId, YearMonth month) {
+        Map<String, Object> data = new HashMap<>();
+        data.put("depotId", depotId);
+        data.put("year", month.getYear());
+        data.put("month", month.getMonthValue());
+        publish(depotTopic(depotId), "rescored", data);
+    }
+
+    // Change to the global invoice totals shown on the dashboard
+    public void totalsChanged(long amountDelta, long countDelta) {
+        Map<String, Object> data = new HashMap<>();
+        data.put("amountDelta", amountDelta);
+        data.put("countDelta", countDelta);
+        publish(DASHBOARD, "totals", data);
+    }
+
+    // action: created, updated or deleted
+    public void depotChanged(String action, String depotId, Depot depot) {
+        Map<String, Object> data = new HashMap<>();
+        data.put("action", action);
+        data.put("depotId", depotId);
+        if (depot != null) {
+            data.put("depot", depot);
+        }
+        publish(DASHBOARD, "depot", data);
+        publish(depotTopic(depotId), "depot", data);
+    }
+
+    // Too much changed to describe as deltas (e.g. a quarter was settled and archived)
+    public void resync(String depotId) {
+        Map<String, Object> data = new HashMap<>();
+        data.put("depotId", depotId);
+        publish(DASHBOARD, "resync", data);
+        publish(depotTopic(depotId), "resync", data);
+    }
+
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new HashMap<>();
+        status.put("subscribers", subscriberCount.get());
+        status.put("topics", topics.size());
+        status.put("resyncs", resyncCount.get());
+        status.put("bufferSize", bufferSize);
+        return status;
+    }
+
+    // Comment line every so often: keeps proxies from closing idle streams and finds dead clients
+    @Scheduled(fixedDelayString = "${live-updates.heartbeat-ms:15000}")
+    public void heartbeat() {
+        for (Set<Subscriber> subscribers : topics.values()) {
+            for (Subscriber subscriber : subscribers) {
+                subscriber.offer(Event.HEARTBEAT);
+            }
+        }
+    }
+
+    private SseEmitter subscribe(String topic) {
+        if (subscriberCount.incrementAndGet() > maxSubscribers) {
+            subscriberCount.decrementAndGet();
+            throw new RuntimeException("Too many live update subscribers");
+        }
+
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        Subscriber subscriber = new Subscriber(topic, emitter, bufferSize);
+        topics.compute(topic, (t, subscribers) -> {
+            Set<Subscriber> set = subscribers != null ? subscribers : ConcurrentHashMap.newKeySet();
+            set.add(subscriber);
+            return set;
+        });
+        emitter.onCompletion(subscriber::remove);
+        emitter.onTimeout(subscriber::remove);
+        emitter.onError(error -> subscriber.remove());
+
+        // First event tells the page the stream is up, so it can load once and then rely on pushes
+        subscriber.offer(new Event("connected", Map.of("topic", topic)));
+        return emitter;
+    }
+
+    private void publish(String topic, String name, Object data) {
+        Set<Subscriber> subscribers = topics.get(topic);
+        if (subscribers == null || subscribers.isEmpty()) {
+            return;
+        }
+        Event event = new Event(name, data);
+        for (Subscriber subscriber : subscribers) {
+            subscriber.offer(event);
+        }
+    }
+
+    private static String depotTopic(String depotId) {
+        return "depot:" + depotId;
+    }
+
+    private static final class Event {
+        private static final Event HEARTBEAT = new Event(null, null);
+        private static final Event RESYNC = new Event("resync", Map.of());
+
+        private final String name;
+        private final Object data;
+
+        Event(String name, Object data) {
+            this.name = name;
+            this.data = data;
+        }
+    }
+
+    private final class Subscriber {
+        private final String topic;
+        private final SseEmitter emitter;
+        private final ArrayBlockingQueue<Event> buffer;
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private final AtomicBoolean removed = new AtomicBoolean();
+        private volatile boolean overflowed;
+
+        Subscriber(String topic, SseEmitter emitter, int bufferSize) {
+            this.topic = topic;
+            this.emitter = emitter;
+            this.buffer = new ArrayBlockingQueue<>(bufferSize);
+        }
+
+        void offer(Event event) {
+            if (!buffer.offer(event)) {
+                // Slow consumer: drop what it hasn't read and make it reload instead
+                buffer.clear();
+                overflowed = true;
+                resyncCount.incrementAndGet();
+            }
+            scheduleDrain();
+        }
+
+        // At most one drain task per subscriber, so events go out in order and the executor queue
+        // never holds more tasks than there are subscribers
+        private void scheduleDrain() {
+            if (!removed.get() && draining.compareAndSet(false, true)) {
+                try {
+                    liveUpdateExecutor.execute(this::drain);
+                } catch (TaskRejectedException e) {
+                    // Executor shutting down or saturated; the next event or heartbeat retries
+                    draining.set(false);
+                }
+            }
+        }
+
+        private void drain() {
+            try {
+                while (!removed.get()) {
+                    if (overflowed) {
+                        overflowed = false;
+                        send(Event.RESYNC);
+                        continue;
+                    }
+                    Event event = buffer.poll();
+                    if (event == null) {
+                        break;
+                    }
+                    send(event);
+                }
+            } catch (IOException | IllegalStateException e) {
+                // Client went away; the servlet container completes the emitter
+                remove();
+            } finally {
+                draining.set(false);
+            }
+            // Something may have arrived between the last poll and releasing the flag
+            if (!buffer.isEmpty() || overflowed) {
+                scheduleDrain();
+            }
+        }
+
+        private void send(Event event) throws IOException {
+            if (event == Event.HEARTBEAT) {
+                emitter.send(SseEmitter.event().comment("heartbeat"));
+            } else {
+                emitter.send(SseEmitter.event().name(event.name).data(event.data));
+            }
+        }
+
+        void remove() {
+            if (removed.compareAndSet(false, true)) {
+                subscriberCount.decrementAndGet();
+                buffer.clear();
+                topics.computeIfPresent(topic, (t, subscribers) -> {
+                    subscribers.remove(this);
+                    return subscribers.isEmpty() ? null : subscribers;
+                });
+            }
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.invoicescoring.service;
+
+import com.invoicescoring.model.MonthlyAggregate;
+import com.invoicescoring.repository.InvoiceRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+
+@Service
+public class MonthlyAggregateService {
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private InvoiceRepository invoiceRepository;
+
+    // Atomically add amount/count deltas to a depot-month and return the aggregate as it was BEFORE the change
+    public MonthlyAggregate applyDelta(String depotId, YearMonth month, long amountDelta, long countDelta) {
+        Query query = Query.query(Criteria.where("_id").is(MonthlyAggregate.idFor(depotId, month)));
+        Update update = new Update()
+                .inc("totalAmount", amountDelta)
+                .inc("invoiceCount", countDelta)
+                .set("updatedDate", LocalDateTime.now());
+
+        MonthlyAggregate previous = mongoTemplate.findAndModify(query, update,
+                FindAndModifyOptions.options().returnNew(false), MonthlyAggregate.class);
+        if (previous != null) {
+            return previous;
+        }
+
+        // First write to this month since aggregates were introduced: seed it from the invoices once
+        seed(depotId, month);
+        return mongoTemplate.findAndModify(query, update,
+                FindAndModifyOptions.options().returnNew(false), MonthlyAggregate.class);
+    }
+
+    // Store the score/discount the month is currently scored at
+    public void updateTier(String depotId, YearMonth month, int score, double discount) {
+        Query query = Query.query(Criteria.where("_id").is(MonthlyAggregate.idFor(depotId, month)));
+        Update update = new Update()
+                .set("score", score)
+                .set("discount", discount)
+                .set("updatedDate", LocalDateTime.now());
+        mongoTemplate.updateFirst(query, update, MonthlyAggregate.class);
+    }
+
+    // Forget the month's tier so the next write to it rescores the whole month
+    public void clearTier(String depotId, YearMonth month) {
+        Query query = Query.query(Criteria.where("_id").is(MonthlyAggregate.idFor(depotId, month)));
+        Update update = new Update()
+                .unset("score")
+                .unset("discount")
+                .set("updatedDate", LocalDateTime.now());
+        mongoTemplate.updateFirst(query, update, MonthlyAggregate.class);
+    }
+
+    // Flag the month while a write-behind rescoring of it is outstanding, so a restart can finish it
+    public void setRescorePending(String depotId, YearMonth month, boolean pending) {
+        Query query = Query.query(Criteria.where("_id").is(MonthlyAggregate.idFor(depotId, month)));
+        mongoTemplate.updateFirst(query, Update.update("rescorePending", pending), MonthlyAggregate.class);
+    }
+
+    public List<MonthlyAggregate> findRescorePending() {
+        return mongoTemplate.find(Query.query(Criteria.where("rescorePending").is(true)), MonthlyAggregate.class);
+    }
+
+    // Drop the aggregates of months whose invoices have been settled and removed
+    public void deleteMonths(String depotId, YearMonth firstMonth, int monthCount) {
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < monthCount; i++) {
+            ids.add(MonthlyAggregate.idFor(depotId, firstMonth.plusMonths(i)));
+        }
+        mongoTemplate.remove(Query.query(Criteria.where("_id").in(ids)), MonthlyAggregate.class);
+    }
+
+    // Build the aggregate from the invoices already stored; score/discount stay null so the
+    // caller rescores the month once
+    private void seed(String depotId, YearMonth month) {
+        MonthlyAggregate aggregate = invoiceRepository.summarizeMonth(depotId, month);
+        try {
+            mongoTemplate.insert(aggregate);
+        } catch (DuplicateKeyException e) {
+            // Another request seeded it first
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.invoicescoring.service;
+
+import com.invoicescoring.model.Depot;
+import com.invoicescoring.model.QuarterCloseRun;
+import com.invoicescoring.repository.DepotRepository;
+import com.invoicescoring.repository.QuarterCloseRunRepository;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Settles a quarter for every depot in the background, replacing the first-invoice trigger
+@Service
+public class QuarterCloseService {
+
+    @Autowired
+    private ScoreCalculationService scoreCalculationService;
+
+    @Autowired
+    private DepotRepository depotRepository;
+
+    @Autowired
+    private QuarterCloseRunRepository quarterCloseRunRepository;
+
+    @Autowired
+    private ServiceMetrics serviceMetrics;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    @Qualifier("quarterCloseExecutor")
+    private AsyncTaskExecutor quarterCloseExecutor;
+
+    // Runs one close at a time per quarter; depot work fans out to quarterCloseExecutor
+    @Autowired
+    @Qualifier("quarterCloseCoordinator")
+    private AsyncTaskExecutor coordinator;
+
+    private final Map<YearMonth, CompletableFuture<Void>> activeRuns = new ConcurrentHashMap<>();
+
+    private final ReentrantLock startLock = new ReentrantLock();
+
+    // Quarter containing the given month, as its first month (Jan/Apr/Jul/Oct)
+    public static YearMonth quarterStartOf(YearMonth month) {
+        return YearMonth.of(month.getYear(), ((month.getMonthValue() - 1) / 3) * 3 + 1);
+    }
+
+    // Close the quarter that just ended, shortly after midnight on Jan 1, Apr 1, Jul 1 and Oct 1
+    @Scheduled(cron = "${quarter-close.cron:0 30 0 1 1,4,7,10 *}")
+    public void closePreviousQuarter() {
+        startClose(quarterStartOf(YearMonth.now().minusMonths(3)));
+    }
+
+    // Pick up runs that were interrupted by a shutdown; settled depots are skipped
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeInterruptedRuns() {
+        for (QuarterCloseRun run : quarterCloseRunRepository.findByStatus(QuarterCloseRun.RUNNING)) {
+            System.out.println("Resuming quarter close " + run.getQuarter());
+            startClose(YearMonth.parse(run.getQuarter()));
+        }
+    }
+
+    // Start closing a quarter in the background (returns the active run if it's already running here)
+    public QuarterCloseRun startClose(YearMonth quarterStart) {
+        startLock.lock();
+        try {
+            return startCloseLocked(quarterStart);
+        } finally {
+            startLock.unlock();
+        }
+    }
+
+    private QuarterCloseRun startCloseLocked(YearMonth quarterStart) {
+        YearMonth quarter = quarterStartOf(quarterStart);
+        if (activeRuns.containsKey(quarter)) {
+            return getRun(quarter).orElseThrow();
+        }
+
+        QuarterCloseRun run = beginRun(quarter);
+        CompletableFuture<Void> future = CompletableFuture.runAsync(() -> closeAllDepots(quarter), coordinator);
+        activeRuns.put(quarter, future);
+        future.whenComplete((result, error) -> activeRuns.remove(quarter));
+        return run;
+    }
+
+    public Optional<QuarterCloseRun> getRun(YearMonth quarterStart) {
+        return quarterCloseRunRepository.findById(quarterStartOf(quarterStart).toString());
+    }
+
+    public List<QuarterCloseRun> getRuns() {
+        return quarterCloseRunRepository.findAll();
+    }
+
+    private QuarterCloseRun beginRun(YearMonth quarter) {
+        QuarterCloseRun run = quarterCloseRunRepository.findById(quarter.toString()).orElse(null);
+        if (run == null) {
+            run = new QuarterCloseRun();
+            run.setId(quarter.toString());
+            run.setQuarter(quarter.toString());
+        }
+        run.setStatus(QuarterCloseRun.RUNNING);
+        run.setTotalDepots(0);
+        run.setClosedDepots(0);
+        run.setSkippedDepots(0);
+        run.setFailedDepots(0);
+        run.setFailedDepotIds(new ArrayList<>());
+        run.setStartedAt(LocalDateTime.now());
+        run.setFinishedAt(null);
+        run.setUpdatedAt(LocalDateTime.now());
+        return quarterCloseRunRepository.save(run);
+    }
+
+    private void closeAllDepots(YearMonth quarter) {
+        List<Depot> depots = depotRepository.findAll();
+        updateRun(quarter, new Update().set("totalDepots", depots.size()));
+
+        List<CompletableFuture<Void>> tasks = new ArrayList<>();
+        for (Depot depot : depots) {
+            tasks.add(CompletableFuture.runAsync(() -> closeDepot(quarter, depot.getId()), quarterCloseExecutor));
+        }
+        CompletableFuture.allOf(tasks.toArray(new CompletableFuture[0])).join();
+
+        QuarterCloseRun run = quarterCloseRunRepository.findById(quarter.toString()).orElseThrow();
+        updateRun(quarter, new Update()
+                .set("status", run.getFailedDepots() > 0 ? QuarterCloseRun.COMPLETED_WITH_ERRORS : QuarterCloseRun.COMPLETED)
+                .set("finishedAt", LocalDateTime.now()));
+        System.out.println("Quarter close " + quarter + " finished: " + run.getClosedDepots() + " closed, "
+                + run.getSkippedDepots() + " already closed, " + run.getFailedDepots() + " failed");
+    }
+
+    private void closeDepot(YearMonth quarter, String depotId) {
+        Timer.Sample sample = serviceMetrics.start();
+        String outcome = "failed";
+        try {
+            // Checkpoint: the calculation returns false for a depot that's already settled
+            boolean closed = scoreCalculationService.performQuarterCalculation(depotId, quarter);
+            outcome = closed ? "closed" : "skipped";
+            updateRun(quarter, new Update().inc(closed ? "closedDepots" : "skippedDepots", 1));
+        } catch (Exception e) {
+            System.err.println("Quarter close " + quarter + " failed for depot " + depotId + ": " + e.getMessage());
+            updateRun(quarter, new Update().inc("failedDepots", 1).push("failedDepotIds", depotId));
+        } finally {
+            sample.stop(serviceMetrics.quarterCloseDepot(depotId, outcome));
+        }
+    }
+
+    private void updateRun(YearMonth quarter, Update update) {
+        update.set("updatedAt", LocalDateTime.now());
+        mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(quarter.toString())), update,
+                QuarterCloseRun.class);
+    }
+}
@@ -0,0 +1,291 @@
+package com.invoicescoring.service;
+
+import com.invoicescoring.model.MonthlyAggregate;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Write-behind rescoring of depot-months. With invoice.rescoring.async on, an invoice write returns as
+// soon as the invoice is saved and the month's full rescoring runs here afterwards. Writes to the same
+// month within the coalesce window share one rescoring run.
+@Service
+public class RescoringQueueService {
+
+    @Autowired
+    private DepotLockRegistry depotLockRegistry;
+
+    @Autowired
+    @Qualifier("rescoringExecutor")
+    private AsyncTaskExecutor rescoringExecutor;
+
+    @Autowired
+    private TaskScheduler taskScheduler;
+
+    @Autowired
+    private MonthlyAggregateService monthlyAggregateService;
+
+    @Value("${invoice.rescoring.async:false}")
+    private boolean async;
+
+    // Months waiting to be rescored; past this the caller rescores inline (backpressure)
+    @Value("${invoice.rescoring.capacity:1000}")
+    private int capacity;
+
+    @Value("${invoice.rescoring.coalesce-ms:200}")
+    private long coalesceMillis;
+
+    @Value("${invoice.rescoring.parallelism:4}")
+    private int parallelism;
+
+    // Months that are rescored and idle stay in the status listing this long
+    @Value("${invoice.rescoring.retention-ms:600000}")
+    private long retentionMillis;
+
+    // A failing month is retried this many times, each after twice the previous delay
+    @Value("${invoice.rescoring.max-attempts:5}")
+    private int maxAttempts;
+
+    private final Map<String, MonthState> months = new ConcurrentHashMap<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicLong callerRuns = new AtomicLong();
+    private final AtomicLong completedRuns = new AtomicLong();
+    private final AtomicLong failedRuns = new AtomicLong();
+    private final AtomicInteger activeRuns = new AtomicInteger();
+    private volatile boolean stopping;
+
+    public boolean isAsync() {
+        return async;
+    }
+
+    // Request a rescoring of the month. The caller may hold the month's lock; the recalculation
+    // itself always runs under it.
+    public void submit(String depotId, YearMonth month, Runnable recalculation) {
+        String key = MonthlyAggregate.idFor(depotId, month);
+        // Bump the version inside compute so evictSettled can't drop the entry between lookup and bump
+        MonthState state = months.compute(key, (k, existing) -> {
+            MonthState current = existing != null ? existing : new MonthState(depotId, month);
+            current.recalculation = recalculation;
+            current.requestedVersion.incrementAndGet();
+            return current;
+        });
+
+        // Already waiting: the queued run reads the latest invoices, so this request is covered
+        if (!state.queued.compareAndSet(false, true)) {
+            return;
+        }
+        markPending(state, true);
+
+        if (queued.incrementAndGet() > capacity) {
+            queued.decrementAndGet();
+            state.queued.set(false);
+            callerRuns.incrementAndGet();
+            run(state);
+            return;
+        }
+
+        // Wait out the coalesce window, then hand over to the workers
+        try {
+            taskScheduler.schedule(() -> dispatch(state), Instant.now().plusMillis(coalesceMillis));
+        } catch (RuntimeException e) {
+            // Scheduler rejected it (e.g. shutting down): undo the queueing and rescore on this thread
+            runRejected(state, e);
+        }
+    }
+
+    // Rescore what is still queued before the application stops. A month that fails here keeps its
+    // rescorePending flag and is picked up again at the next startup.
+    @PreDestroy
+    public void drain() {
+        stopping = true;
+        int drained = 0;
+        for (MonthState state : months.values()) {
+            if (state.queued.compareAndSet(true, false)) {
+                queued.decrementAndGet();
+                run(state);
+                drained++;
+            }
+        }
+        if (drained > 0) {
+            System.out.println("[rescoring] Drained " + drained + " queued months on shutdown");
+        }
+    }
+
+    // Forget months that are fully rescored and idle; a later write to one just starts a new entry
+    @Scheduled(fixedDelayString = "${invoice.rescoring.retention-ms:600000}")
+    public void evictSettled() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(Duration.ofMillis(retentionMillis));
+        for (String key : months.keySet()) {
+            months.computeIfPresent(key, (k, state) -> isSettled(state, cutoff) ? null : state);
+        }
+    }
+
+    private static boolean isSettled(MonthState state, LocalDateTime cutoff) {
+        return !state.queued.get()
+                && state.failedAttempts == 0
+                && state.computedVersion == state.requestedVersion.get()
+                && state.lastComputedAt != null
+                && state.lastComputedAt.isBefore(cutoff);
+    }
+
+    public Map<String, Object> getStatus() {
+        List<Map<String, Object>> monthRows = new ArrayList<>();
+        for (Map.Entry<String, MonthState> entry : months.entrySet()) {
+            MonthState state = entry.getValue();
+            Map<String, Object> row = new HashMap<>();
+            row.put("depotMonth", entry.getKey());
+            row.put("requestedVersion", state.requestedVersion.get());
+            row.put("computedVersion", state.computedVersion);
+            row.put("queued", state.queued.get());
+            row.put("failedAttempts", state.failedAttempts);
+            row.put("lastComputedAt", state.lastComputedAt);
+            monthRows.add(row);
+        }
+
+        Map<String, Object> status = new HashMap<>();
+        status.put("async", async);
+        status.put("queueDepth", queued.get());
+        status.put("capacity", capacity);
+        status.put("coalesceMillis", coalesceMillis);
+        status.put("parallelism", parallelism);
+        status.put("activeWorkers", activeRuns.get());
+        status.put("completedRuns", completedRuns.get());
+        status.put("callerRuns", callerRuns.get());
+        status.put("failedRuns", failedRuns.get());
+        status.put("months", monthRows);
+        return status;
+    }
+
+    private void dispatch(MonthState state) {
+        try {
+            rescoringExecutor.execute(() -> runQueued(state));
+        } catch (RuntimeException e) {
+            runRejected(state, e);
+        }
+    }
+
+    private void runRejected(MonthState state, RuntimeException e) {
+        System.err.println("Rescoring " + MonthlyAggregate.idFor(state.depotId, state.month)
+                + " could not be queued, running it inline: " + e.getMessage());
+        if (!state.queued.compareAndSet(true, false)) {
+            return; // the shutdown drain got to it first
+        }
+        queued.decrementAndGet();
+        callerRuns.incrementAndGet();
+        run(state);
+    }
+
+    private void runQueued(MonthState state) {
+        // Count the run as active before it leaves the queue, so queueDepth and activeWorkers are never
+        // both zero while work is still outstanding
+        activeRuns.incrementAndGet();
+        try {
+            // Clear the flag before reading the version so writes from here on queue another run.
+            // Already clear means the shutdown drain ran the month.
+            if (!state.queued.compareAndSet(true, false)) {
+                return;
+            }
+            queued.decrementAndGet();
+            run(state);
+        } finally {
+            activeRuns.decrementAndGet();
+        }
+    }
+
+    private void run(MonthState state) {
+        List<ReentrantLock> locks = depotLockRegistry.lockMonths(state.depotId, List.of(state.month));
+        try {
+            long version = state.requestedVersion.get();
+            state.recalculation.run();
+            if (version > state.computedVersion) {
+                state.computedVersion = version;
+            }
+            state.lastComputedAt = LocalDateTime.now();
+            state.failedAttempts = 0;
+            completedRuns.incrementAndGet();
+            // Submitters hold the month lock too, so a run queued since can't lose its flag here
+            if (!state.queued.get()) {
+                markPending(state, false);
+            }
+        } catch (Exception e) {
+            failedRuns.incrementAndGet();
+            retryOrGiveUp(state, e);
+        } finally {
+            StripedLocks.unlockAll(locks);
+        }
+    }
+
+    private void retryOrGiveUp(MonthState state, Exception e) {
+        String key = MonthlyAggregate.idFor(state.depotId, state.month);
+        int attempt = ++state.failedAttempts;
+        if (attempt < maxAttempts && !stopping) {
+            long delay = coalesceMillis << attempt;
+            System.err.println("Rescoring " + key + " failed (attempt " + attempt + "), retrying in "
+                    + delay + " ms: " + e.getMessage());
+            // A write may have queued the month again already; that run covers the retry
+            if (state.queued.compareAndSet(false, true)) {
+                queued.incrementAndGet();
+                try {
+                    taskScheduler.schedule(() -> dispatch(state), Instant.now().plusMillis(delay));
+                } catch (RuntimeException rejected) {
+                    state.queued.set(false);
+                    queued.decrementAndGet();
+                }
+            }
+            return;
+        }
+
+        // Out of attempts: drop the stored tier so the next write to the month rescores all of it.
+        // rescorePending stays set, so the next startup tries again as well.
+        System.err.println("Rescoring " + key + " failed " + attempt + " times, giving up: " + e.getMessage());
+        state.failedAttempts = 0;
+        try {
+            monthlyAggregateService.clearTier(state.depotId, state.month);
+        } catch (RuntimeException clearFailed) {
+            System.err.println("Could not clear the tier of " + key + ": " + clearFailed.getMessage());
+        }
+    }
+
+    private void markPending(MonthState state, boolean pending) {
+        try {
+            monthlyAggregateService.setRescorePending(state.depotId, state.month, pending);
+        } catch (RuntimeException e) {
+            // The in-memory queue still runs the month; only a restart before then would miss it
+            System.err.println("Could not flag " + MonthlyAggregate.idFor(state.depotId, state.month)
+                    + " as pending: " + e.getMessage());
+        }
+    }
+
+    private static class MonthState {
+        private final String depotId;
+        private final YearMonth month;
+        private final AtomicLong requestedVersion = new AtomicLong();
+        private final AtomicBoolean queued = new AtomicBoolean();
+        private volatile Runnable recalculation;
+        private volatile long computedVersion;
+        private volatile LocalDateTime lastComputedAt;
+        private volatile int failedAttempts; // only changed under the month lock
+
+        private MonthState(String depotId, YearMonth month) {
+            this.depotId = depotId;
+            this.month = month;
+        }
+    }
+}
@@ -1,14 +1,28 @@
 package com.invoicescoring.service;
 
+import com.invoicescoring.config.CacheConfig;
 import com.invoicescoring.model.CalculationRecord;
 import com.invoicescoring.model.Invoice;
 import com.invoicescoring.repository.CalculationRecordRepository;
 import com.invoicescoring.repository.InvoiceRepository;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.time.YearMonth;
 import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
 
 @Service
 public class ScoreCalculationService {
@@ -19,18 +33,45 @@ public class ScoreCalculationService {
     @Autowired
     private CalculationRecordRepository calculationRecordRepository;
 
+    @Autowired
+    private MonthlyAggregateService monthlyAggregateService;
+
+    @Autowired
+    private GlobalCounterService globalCounterService;
+
+    @Autowired
+    private DashboardSnapshotService dashboardSnapshotService;
+
+    @Autowired
+    private DepotLockRegistry depotLockRegistry;
+
+    @Autowired
+    private InvoiceArchiveService invoiceArchiveService;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private ScoringEngine scoringEngine;
+
+    @Autowired
+    private ServiceMetrics serviceMetrics;
+
+    @Autowired
+    private LiveUpdateService liveUpdateService;
+
+    // How long a quarter calculation may hold its depot-quarter lease before another run can take over
+    @Value("${quarter-calculation.lease-seconds:300}")
+    private long leaseSeconds;
+
     // Calculate score for SINGLE invoice - This is WRONG for monthly accumulation
     public Integer calculateScore(Long amount) {
-        if (amount < 1_000_000)
-            return 0;
-        return Math.toIntExact(amount / 1_000_000);
+        return scoringEngine.defaultTable().score(amount);
     }
 
     // NEW: Calculate score for accumulated amount
     public Integer calculateAccumulatedScore(Long totalAmount) {
-        if (totalAmount < 1_000_000)
-            return 0;
-        return Math.toIntExact(totalAmount / 1_000_000);
+        return scoringEngine.defaultTable().score(totalAmount);
     }
 
     // NEW: Calculate score for a list of invoices (monthly accumulation)
@@ -44,72 +85,236 @@ public class ScoreCalculationService {
 
     // Calculate discount based on TOTAL score (not individual)
     public Double calculateDiscount(Integer totalScore) {
-        if (totalScore >= 20)
-            return 10.0;
-        if (totalScore >= 10)
-            return 5.0;
-        return 0.0;
+        return TierTable.percent(scoringEngine.defaultTable().discountBps(totalScore));
     }
 
-    // Calculate total after discount
+    // Calculate total after discount (exact, in whole basis points)
     public Long calculateTotalAfterDiscount(Long amount, Double discount) {
-        return Math.round(amount * (1 - discount / 100.0));
+        return TierTable.afterDiscount(amount, (int) Math.round(discount * 100));
+    }
+
+    // Perform 3-month accumulation calculation exactly once per depot and quarter.
+    // Returns false when the quarter had already been settled; safe to retry after a failure.
+    @CacheEvict(cacheNames = CacheConfig.CARRYOVER, key = "#depotId + ':' + #quarterStart")
+    public boolean performQuarterCalculation(String depotId, YearMonth quarterStart) {
+        Timer.Sample sample = serviceMetrics.start();
+        String outcome = "failed";
+        try {
+            boolean settled = settleQuarter(depotId, quarterStart);
+            outcome = settled ? "settled" : "skipped";
+            return settled;
+        } finally {
+            sample.stop(serviceMetrics.quarterCalculation(outcome));
+        }
     }
 
-    // Perform 3-month accumulation calculation
-    public void performQuarterCalculation(String depotId, YearMonth quarterStart) {
-        LocalDate startDate = quarterStart.atDay(1);
-        LocalDate endDate = quarterStart.plusMonths(3).atDay(1).minusDays(1);
+    private boolean settleQuarter(String depotId, YearMonth quarterStart) {
+        // In-process: one calculation per depot-quarter at a time, other depots unaffected
+        ReentrantLock lock = depotLockRegistry.quarterLock(depotId, quarterStart);
+        lock.lock();
+        // Invoice writes to the quarter's months wait until the settlement is done, so nothing is
+        // added between summing the quarter and archiving it
+        List<ReentrantLock> monthLocks = depotLockRegistry.lockMonths(depotId,
+                List.of(quarterStart, quarterStart.plusMonths(1), quarterStart.plusMonths(2)));
+        try {
+            // Across instances: a lease on the unique {depotId, quarter} record
+            String owner = UUID.randomUUID().toString();
+            CalculationRecord record = acquireLease(depotId, quarterStart, owner);
+            if (record == null) {
+                return false;
+            }
 
-        // Sum all invoices in the 3-month period
-        List<Invoice> invoices = invoiceRepository.findByDepotIdAndDateBetweenOrderByDateAsc(
-                depotId, startDate, endDate);
+            LocalDate startDate = quarterStart.atDay(1);
+            LocalDate endDate = quarterStart.plusMonths(3).atDay(1);
 
-        long totalAmount = 0;
-        Integer totalScore = 0;
+            // All invoices in the 3-month period
+            List<Invoice> invoices = invoiceRepository.findInvoicesInRange(depotId, startDate, endDate);
+
+            TierTable table = scoringEngine.tableFor(depotId);
+            Settlement settlement = computeSettlement(table, invoices);
+
+            // A retry of a run that already saved its results only has to finish archiving the invoices
+            if (!CalculationRecord.SETTLING.equals(record.getStatus())) {
+                saveResults(record, owner, table, settlement);
+            }
 
+            // The settled invoices leave the global totals once, from the totals saved on the record:
+            // a retry may find some of them already archived
+            removeFromCounters(record.getId(), owner);
+
+            // Move invoices from previous 3 months out of the live collection
+            invoiceArchiveService.archiveQuarter(depotId, quarterStart, invoices);
+
+            // Their monthly running totals go with them
+            monthlyAggregateService.deleteMonths(depotId, quarterStart, 3);
+            dashboardSnapshotService.invalidate();
+
+            Query mine = Query.query(Criteria.where("_id").is(record.getId()).and("leaseOwner").is(owner));
+            mongoTemplate.updateFirst(mine, new Update()
+                    .set("status", CalculationRecord.COMPLETED)
+                    .unset("leaseOwner")
+                    .unset("leaseExpiresAt"), CalculationRecord.class);
+
+            // The quarter's invoices and month totals just disappeared from the live views
+            liveUpdateService.resync(depotId);
+            return true;
+        } finally {
+            StripedLocks.unlockAll(monthLocks);
+            lock.unlock();
+        }
+    }
+
+    // The quarter's settlement figures from its invoices. No I/O, so the settlement benchmark measures
+    // this same code.
+    public static Settlement computeSettlement(TierTable table, List<Invoice> invoices) {
+        long totalAmount = 0;
         for (Invoice invoice : invoices) {
             totalAmount += invoice.getAmount();
-            // DON'T add individual scores - calculate from total amount
-            // totalScore += invoice.getScore(); // WRONG
         }
 
+        Settlement settlement = new Settlement();
+        settlement.totalAmount = totalAmount;
+        settlement.invoiceCount = invoices.size();
+
         // CORRECT: Calculate score from TOTAL amount
-        totalScore = calculateAccumulatedScore(totalAmount);
+        settlement.totalScore = table.score(totalAmount);
 
         // Calculate discount
-        Double discount = calculateDiscount(totalScore);
-        Long totalAfterDiscount = calculateTotalAfterDiscount(totalAmount, discount);
+        settlement.discountBps = table.discountBps(settlement.totalScore);
+        settlement.totalAfterDiscount = TierTable.afterDiscount(totalAmount, settlement.discountBps);
 
         // Calculate remainder score
-        Integer remainderScore = totalScore % 10;
+        settlement.remainderScore = settlement.totalScore % 10;
 
         // Calculate new score from total after discount
-        Integer newScore = calculateAccumulatedScore(totalAfterDiscount);
-        Integer carryoverScore = remainderScore + newScore;
-
-        // Save calculation record
-        CalculationRecord record = new CalculationRecord();
-        record.setDepotId(depotId);
-        record.setQuarter(quarterStart);
-        record.setTotalAmount(totalAmount);
-        record.setTotalScore(totalScore);
-        record.setDiscount(discount);
-        record.setTotalAfterDiscount(totalAfterDiscount);
-        record.setRemainderScore(remainderScore);
-        record.setCarryoverScore(carryoverScore);
-        record.setCalculatedDate(LocalDate.now());
-        calculationRecordRepository.save(record);
-
-        // Delete invoices from previous 3 months
-        invoiceRepository.deleteAll(invoices);
+        int newScore = table.score(settlement.totalAfterDiscount);
+        settlement.carryoverScore = settlement.remainderScore + newScore;
+        return settlement;
+    }
+
+    private void saveResults(CalculationRecord record, String owner, TierTable table, Settlement settlement) {
+        // Save the results only while we still hold the lease
+        Query mine = Query.query(Criteria.where("_id").is(record.getId()).and("leaseOwner").is(owner));
+        Update update = new Update()
+                .set("totalAmount", settlement.totalAmount)
+                .set("invoiceCount", settlement.invoiceCount)
+                .set("totalScore", settlement.totalScore)
+                .set("discount", TierTable.percent(settlement.discountBps))
+                .set("totalAfterDiscount", settlement.totalAfterDiscount)
+                .set("tierVersion", table.getVersion())
+                .set("remainderScore", settlement.remainderScore)
+                .set("carryoverScore", settlement.carryoverScore)
+                .set("calculatedDate", LocalDate.now())
+                .set("status", CalculationRecord.SETTLING);
+        if (mongoTemplate.updateFirst(mine, update, CalculationRecord.class).getMatchedCount() == 0) {
+            throw new RuntimeException("Lost the quarter calculation lease for depot " + record.getDepotId());
+        }
+    }
+
+    // Flag the record's totals as taken out of the global counters, then take them out; a record whose
+    // flag is already set (by an earlier attempt) is left alone
+    private void removeFromCounters(String recordId, String owner) {
+        Query notApplied = Query.query(Criteria.where("_id").is(recordId)
+                .and("leaseOwner").is(owner)
+                .and("countersApplied").ne(true));
+        CalculationRecord claimed = mongoTemplate.findAndModify(notApplied,
+                new Update().set("countersApplied", true),
+                FindAndModifyOptions.options().returnNew(true), CalculationRecord.class);
+        if (claimed != null) {
+            globalCounterService.applyInvoiceDelta(-claimed.getTotalAmount(), -claimed.getInvoiceCount());
+        }
+    }
+
+    // Take the depot-quarter lease. Returns null if the quarter is already settled and throws
+    // if another run holds a live lease.
+    private CalculationRecord acquireLease(String depotId, YearMonth quarterStart, String owner) {
+        LocalDateTime now = LocalDateTime.now();
+
+        CalculationRecord lease = new CalculationRecord();
+        lease.setDepotId(depotId);
+        lease.setQuarter(quarterStart);
+        lease.setStatus(CalculationRecord.IN_PROGRESS);
+        lease.setLeaseOwner(owner);
+        lease.setLeaseExpiresAt(now.plusSeconds(leaseSeconds));
+        try {
+            return mongoTemplate.insert(lease);
+        } catch (DuplicateKeyException e) {
+            // A record exists: settled, in progress elsewhere, or abandoned
+        }
+
+        // Take over an abandoned run whose lease has expired
+        Query expired = Query.query(Criteria.where("depotId").is(depotId)
+                .and("quarter").is(quarterStart)
+                .and("status").in(CalculationRecord.IN_PROGRESS, CalculationRecord.SETTLING)
+                .and("leaseExpiresAt").lt(now));
+        Update takeOver = new Update()
+                .set("leaseOwner", owner)
+                .set("leaseExpiresAt", now.plusSeconds(leaseSeconds));
+        CalculationRecord taken = mongoTemplate.findAndModify(expired, takeOver,
+                FindAndModifyOptions.options().returnNew(true), CalculationRecord.class);
+        if (taken != null) {
+            return taken;
+        }
+
+        CalculationRecord existing = calculationRecordRepository.findByDepotIdAndQuarter(depotId, quarterStart)
+                .orElseThrow(() -> new RuntimeException("Quarter calculation record disappeared, retry"));
+        if (isSettled(existing)) {
+            return null;
+        }
+        throw new RuntimeException("Quarter calculation already in progress for depot " + depotId);
+    }
+
+    private boolean isSettled(CalculationRecord record) {
+        return record.getStatus() == null || CalculationRecord.COMPLETED.equals(record.getStatus());
     }
 
     // Get carried over score for depot in a specific quarter
+    // Cached per settled quarter; performQuarterCalculation evicts the entry it settles
+    @Cacheable(cacheNames = CacheConfig.CARRYOVER, key = "#depotId + ':' + #quarter.minusMonths(3)")
     public Integer getCarryoverScore(String depotId, YearMonth quarter) {
         YearMonth previousQuarter = quarter.minusMonths(3);
         return calculationRecordRepository.findByDepotIdAndQuarter(depotId, previousQuarter)
+                .filter(record -> !CalculationRecord.IN_PROGRESS.equals(record.getStatus()))
                 .map(CalculationRecord::getCarryoverScore)
                 .orElse(0);
     }
-}
\ No newline at end of file
+
+    // Result of computeSettlement
+    public static class Settlement {
+        private long totalAmount;
+        private int invoiceCount;
+        private int totalScore;
+        private int discountBps;
+        private long totalAfterDiscount;
+        private int remainderScore;
+        private int carryoverScore;
+
+        public long getTotalAmount() {
+            return totalAmount;
+        }
+
+        public int getInvoiceCount() {
+            return invoiceCount;
+        }
+
+        public int getTotalScore() {
+            return totalScore;
+        }
+
+        public int getDiscountBps() {
+            return discountBps;
+        }
+
+        public long getTotalAfterDiscount() {
+            return totalAfterDiscount;
+        }
+
+        public int getRemainderScore() {
+            return remainderScore;
+        }
+
+        public int getCarryoverScore() {
+            return carryoverScore;
+        }
+    }
+}
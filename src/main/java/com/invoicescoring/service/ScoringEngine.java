@@ -0,0 +1,71 @@
+package com.invoicescoring.service;
+
+import com.invoicescoring.config.ScoringProperties;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import jakarta.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Resolves the tier table that applies to a depot
+@Service
+public class ScoringEngine {
+
+    @Autowired
+    private ScoringProperties scoringProperties;
+
+    private TierTable defaultTable;
+    private Map<String, TierTable> depotTables = new HashMap<>();
+
+    @PostConstruct
+    public void init() {
+        List<ScoringProperties.Tier> tiers = scoringProperties.getTiers();
+        if (tiers.isEmpty()) {
+            // The original rules: 5% from 10 points, 10% from 20
+            tiers = List.of(tier(10, 500), tier(20, 1000));
+        }
+        defaultTable = build(scoringProperties.getVersion(), scoringProperties.getPointUnit(), tiers);
+
+        Map<String, TierTable> tables = new HashMap<>();
+        for (Map.Entry<String, ScoringProperties.Table> entry : scoringProperties.getDepots().entrySet()) {
+            ScoringProperties.Table table = entry.getValue();
+            String version = table.getVersion() != null ? table.getVersion() : entry.getKey();
+            long pointUnit = table.getPointUnit() != null ? table.getPointUnit() : scoringProperties.getPointUnit();
+            tables.put(entry.getKey(), build(version, pointUnit, table.getTiers()));
+        }
+        depotTables = tables;
+
+        System.out.println("Scoring tiers: " + defaultTable + ", depot overrides: " + depotTables.keySet());
+    }
+
+    public TierTable defaultTable() {
+        return defaultTable;
+    }
+
+    public TierTable tableFor(String depotId) {
+        TierTable table = depotId != null ? depotTables.get(depotId) : null;
+        return table != null ? table : defaultTable;
+    }
+
+    private static TierTable build(String version, long pointUnit, List<ScoringProperties.Tier> tiers) {
+        List<ScoringProperties.Tier> sorted = new ArrayList<>(tiers);
+        sorted.sort((a, b) -> Integer.compare(a.getMinScore(), b.getMinScore()));
+
+        int[] minScores = new int[sorted.size()];
+        int[] discountBps = new int[sorted.size()];
+        for (int i = 0; i < sorted.size(); i++) {
+            minScores[i] = sorted.get(i).getMinScore();
+            discountBps[i] = sorted.get(i).getDiscountBps();
+        }
+        return new TierTable(version, pointUnit, minScores, discountBps);
+    }
+
+    private static ScoringProperties.Tier tier(int minScore, int discountBps) {
+        ScoringProperties.Tier tier = new ScoringProperties.Tier();
+        tier.setMinScore(minScore);
+        tier.setDiscountBps(discountBps);
+        return tier;
+    }
+}
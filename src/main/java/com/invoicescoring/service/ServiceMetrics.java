@@ -0,0 +1,124 @@
+package com.invoicescoring.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+// Meters for the write path, exported through /actuator/prometheus. Mongo command latency comes from
+// Spring Boot's own mongodb.driver.commands timers; round-trips per request from MongoRoundTripFilter.
+@Component
+public class ServiceMetrics {
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Timer invoiceCreate;
+    private Timer invoiceUpdate;
+    private Timer invoiceDelete;
+    private Timer invoiceBatch;
+    private Timer monthRescore;
+    private DistributionSummary rescoredRows;
+    private DistributionSummary scannedRows;
+    private Counter tierChanges;
+    private Counter invoiceNoFiltered;
+    private Counter invoiceNoQueried;
+
+    @PostConstruct
+    public void init() {
+        invoiceCreate = writeTimer("create");
+        invoiceUpdate = writeTimer("update");
+        invoiceDelete = writeTimer("delete");
+        invoiceBatch = writeTimer("batch");
+        monthRescore = Timer.builder("invoice.rescore.month")
+                .description("Full rescoring of one depot-month")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        rescoredRows = DistributionSummary.builder("invoice.rescore.rows.written")
+                .description("Invoices rewritten by one month rescoring")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        scannedRows = DistributionSummary.builder("invoice.rescore.rows.scanned")
+                .description("Invoices read by one month rescoring")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        tierChanges = Counter.builder("invoice.tier.changes")
+                .description("Invoice writes that moved their month to another discount tier")
+                .register(meterRegistry);
+        invoiceNoFiltered = invoiceNoCheckCounter("filtered");
+        invoiceNoQueried = invoiceNoCheckCounter("queried");
+    }
+
+    public Timer invoiceCreate() {
+        return invoiceCreate;
+    }
+
+    public Timer invoiceUpdate() {
+        return invoiceUpdate;
+    }
+
+    public Timer invoiceDelete() {
+        return invoiceDelete;
+    }
+
+    public Timer invoiceBatch() {
+        return invoiceBatch;
+    }
+
+    public Timer monthRescore() {
+        return monthRescore;
+    }
+
+    public void recordRescoredRows(int scanned, int written) {
+        scannedRows.record(scanned);
+        rescoredRows.record(written);
+    }
+
+    public void recordTierChange() {
+        tierChanges.increment();
+    }
+
+    // filtered: answered "not taken" by the Bloom filter; queried: needed the database
+    public void recordInvoiceNoCheck(boolean filtered) {
+        (filtered ? invoiceNoFiltered : invoiceNoQueried).increment();
+    }
+
+    // outcome: settled, skipped (already settled) or failed
+    public Timer quarterCalculation(String outcome) {
+        return Timer.builder("quarter.calculation")
+                .description("Settlement of one depot's quarter")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    // Per depot, so a slow depot stands out in a quarter close; bounded by the number of depots
+    public Timer quarterCloseDepot(String depotId, String outcome) {
+        return Timer.builder("quarter.close.depot")
+                .description("Time to close one depot within a scheduled quarter close")
+                .tag("depot", depotId)
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    public Timer.Sample start() {
+        return Timer.start(meterRegistry);
+    }
+
+    private Counter invoiceNoCheckCounter(String result) {
+        return Counter.builder("invoice.no.checks")
+                .description("Invoice number uniqueness checks")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private Timer writeTimer(String operation) {
+        return Timer.builder("invoice.write")
+                .description("Invoice mutation including aggregate update and rescoring")
+                .tag("operation", operation)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,55 @@
+package com.invoicescoring.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Fixed set of locks that keys hash onto: unrelated keys rarely contend, and memory stays
+// bounded no matter how many keys exist
+public class StripedLocks {
+
+    private final ReentrantLock[] stripes;
+
+    public StripedLocks(int stripeCount) {
+        // Round up to a power of two so the hash can be masked
+        int size = Integer.highestOneBit(Math.max(1, stripeCount - 1)) << 1;
+        stripes = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    public ReentrantLock lockFor(Object key) {
+        return stripes[indexFor(key)];
+    }
+
+    // Lock the stripes of several keys in index order so two callers can't deadlock;
+    // release with unlockAll
+    public List<ReentrantLock> lockAll(Collection<?> keys) {
+        TreeSet<Integer> indexes = new TreeSet<>();
+        for (Object key : keys) {
+            indexes.add(indexFor(key));
+        }
+
+        List<ReentrantLock> locked = new ArrayList<>();
+        for (int index : indexes) {
+            stripes[index].lock();
+            locked.add(stripes[index]);
+        }
+        return locked;
+    }
+
+    public static void unlockAll(List<ReentrantLock> locks) {
+        for (int i = locks.size() - 1; i >= 0; i--) {
+            locks.get(i).unlock();
+        }
+    }
+
+    private int indexFor(Object key) {
+        int hash = key.hashCode();
+        hash ^= (hash >>> 16);
+        return hash & (stripes.length - 1);
+    }
+}
@@ -0,0 +1,88 @@
+package com.invoicescoring.service;
+
+import java.util.Arrays;
+
+// Immutable scoring rules: one point per pointUnit of amount, and a discount (in basis points, 1/100 of a
+// percent) for each score threshold. All methods work on primitives and allocate nothing, so they can run
+// inside tight rescoring loops.
+public final class TierTable {
+
+    public static final int BPS_SCALE = 10_000;
+
+    private final String version;
+    private final long pointUnit;
+    private final int[] minScores; // ascending
+    private final int[] discountBps; // discount for minScores[i] and above
+
+    public TierTable(String version, long pointUnit, int[] minScores, int[] discountBps) {
+        if (pointUnit <= 0) {
+            throw new RuntimeException("Tier table " + version + ": point unit must be positive");
+        }
+        if (minScores.length != discountBps.length) {
+            throw new RuntimeException("Tier table " + version + ": every tier needs a discount");
+        }
+        for (int i = 0; i < minScores.length; i++) {
+            if (i > 0 && minScores[i] <= minScores[i - 1]) {
+                throw new RuntimeException("Tier table " + version + ": tiers must be in ascending score order");
+            }
+            if (discountBps[i] < 0 || discountBps[i] > BPS_SCALE) {
+                throw new RuntimeException("Tier table " + version + ": discount must be 0-10000 bps");
+            }
+        }
+        this.version = version;
+        this.pointUnit = pointUnit;
+        this.minScores = minScores.clone();
+        this.discountBps = discountBps.clone();
+    }
+
+    public String getVersion() {
+        return version;
+    }
+
+    public long getPointUnit() {
+        return pointUnit;
+    }
+
+    // Points earned by an amount (a month's or quarter's total, or a single invoice)
+    public int score(long amount) {
+        if (amount < pointUnit) {
+            return 0;
+        }
+        return Math.toIntExact(amount / pointUnit);
+    }
+
+    // Discount of the highest tier the score reaches, in basis points
+    public int discountBps(int score) {
+        for (int i = minScores.length - 1; i >= 0; i--) {
+            if (score >= minScores[i]) {
+                return discountBps[i];
+            }
+        }
+        return 0;
+    }
+
+    // Exact amount after a basis-point discount, rounded half up
+    public static long afterDiscount(long amount, int bps) {
+        return (amount * (BPS_SCALE - bps) + BPS_SCALE / 2) / BPS_SCALE;
+    }
+
+    // Percent form of a basis-point discount, as stored on invoices and records (500 -> 5.0)
+    public static double percent(int bps) {
+        return bps / 100.0;
+    }
+
+    // An invoice's proportional share of the month's score, never less than its own points
+    public int invoiceScore(long amount, long monthTotalAmount, int monthScore) {
+        int share = 0;
+        if (monthTotalAmount > 0) {
+            share = (int) Math.round(monthScore * ((double) amount / monthTotalAmount));
+        }
+        return Math.max(share, score(amount));
+    }
+
+    @Override
+    public String toString() {
+        return "TierTable{version=" + version + ", pointUnit=" + pointUnit
+                + ", minScores=" + Arrays.toString(minScores) + ", discountBps=" + Arrays.toString(discountBps) + "}";
+    }
+}